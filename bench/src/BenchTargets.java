@@ -0,0 +1,99 @@
+import bench.Targets;
+import java.util.ArrayList;
+import java.util.Random;
+import javalib.worldimages.Posn;
+
+// Implements the benchmarks' Targets with the game's classes (see Targets for why).
+public class BenchTargets implements Targets {
+  static final int TILE_SIZE = 20;
+
+  RushHourUtils utils = new RushHourUtils();
+
+  public BenchTargets() {
+  }
+
+  /*
+  F:
+  utils -- RushHourUtils
+  M:
+  level -- String
+  vehiclesList -- Object
+  tileGrid -- Object
+  game -- Object
+  makeScene -- Object
+  onMouseClicked -- Object
+  pixelSize -- int[]
+  vehicles -- Object[]
+  overlaps -- boolean
+  toTiles -- Object
+  vehicleList -- Object
+  map -- Object
+  fold -- int
+  append -- Object
+   */
+
+  public String level(String board) {
+    if (board.equals("example")) {
+      return SolverBenchmark.EXAMPLE_LEVELS[0];
+    }
+    int size = Integer.parseInt(board);
+    return LevelStrings.randomLevel(new Random(2510), size, size * size / 3);
+  }
+
+  public Object vehiclesList(String level) {
+    return this.utils.getVehiclesList(level, level.length(), 0, 0, 0, new MT<>(), TILE_SIZE);
+  }
+
+  public Object tileGrid(String level) {
+    return this.utils.getTileGrid(level, 0, 0, 0, TILE_SIZE);
+  }
+
+  public Object game(String level) {
+    return new RushHour(level, this.utils, TILE_SIZE);
+  }
+
+  public Object makeScene(Object game) {
+    return ((RushHour) game).makeScene();
+  }
+
+  public Object onMouseClicked(Object game, int x, int y) {
+    return ((RushHour) game).onMouseClicked(new Posn(x, y));
+  }
+
+  public int[] pixelSize(Object game) {
+    TileGrid grid = ((RushHour) game).tileGrid;
+    return new int[] {grid.cols * TILE_SIZE, grid.rows * TILE_SIZE};
+  }
+
+  public Object[] vehicles(Object game) {
+    return ((RushHour) game).vehicles.fold(new CollectVehicles(), new ArrayList<>())
+            .toArray();
+  }
+
+  public boolean overlaps(Object vehicle, Object that) {
+    return ((Vehicle) vehicle).overlaps((Vehicle) that);
+  }
+
+  public Object toTiles(Object vehicle) {
+    return ((Vehicle) vehicle).toTiles();
+  }
+
+  public Object vehicleList(Object game) {
+    return ((RushHour) game).vehicles;
+  }
+
+  @SuppressWarnings("unchecked")
+  public Object map(Object list) {
+    return ((IList<Vehicle>) list).map(vehicle -> vehicle.tileSize);
+  }
+
+  @SuppressWarnings("unchecked")
+  public int fold(Object list) {
+    return ((IList<Vehicle>) list).fold((vehicle, sum) -> sum + vehicle.x1, 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  public Object append(Object list, Object that) {
+    return ((IList<Vehicle>) list).append((IList<Vehicle>) that);
+  }
+}
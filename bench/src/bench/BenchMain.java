@@ -0,0 +1,39 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the benchmarks and writes their results as JSON to bench/results/jmh-<date and time>.json,
+// one file per run, so runs can be compared over time. Arguments are JMH's own, for example
+//   java bench.BenchMain Scene -p board=example,100
+// runs only the SceneBenchmark benchmarks on two of the boards; -rf and -rff choose another
+// result format or file.
+public class BenchMain {
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException,
+          IOException {
+    CommandLineOptions given = new CommandLineOptions(args);
+    Path results = Paths.get("bench", "results");
+    Files.createDirectories(results);
+    String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    OptionsBuilder builder = new OptionsBuilder();
+    if (!given.getResultFormat().hasValue()) {
+      builder.resultFormat(ResultFormatType.JSON);
+    }
+    if (!given.getResult().hasValue()) {
+      builder.result(results.resolve("jmh-" + stamp + ".json").toString());
+    }
+    Options options = builder.parent(given).build();
+    new Runner(options).run();
+  }
+}
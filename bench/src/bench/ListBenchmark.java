@@ -0,0 +1,51 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// IList's map, fold and append over a board's list of vehicles, from the few of an example
+// level to the thousands of a 100x100 board.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+  @Param({"example", "6", "20", "50", "100"})
+  String board;
+
+  Targets targets;
+  Object list;
+
+  @Setup
+  public void setUp() {
+    this.targets = Targets.load();
+    this.list = this.targets.vehicleList(this.targets.game(this.targets.level(this.board)));
+  }
+
+  @Benchmark
+  public Object map() {
+    return this.targets.map(this.list);
+  }
+
+  @Benchmark
+  public int fold() {
+    return this.targets.fold(this.list);
+  }
+
+  @Benchmark
+  public Object append() {
+    return this.targets.append(this.list, this.list);
+  }
+}
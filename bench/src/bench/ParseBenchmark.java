@@ -0,0 +1,45 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Reading a level string: the vehicles, and the grid with its exit.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+  @Param({"example", "6", "20", "50", "100"})
+  String board;
+
+  Targets targets;
+  String level;
+
+  @Setup
+  public void setUp() {
+    this.targets = Targets.load();
+    this.level = this.targets.level(this.board);
+  }
+
+  @Benchmark
+  public Object getVehiclesList() {
+    return this.targets.vehiclesList(this.level);
+  }
+
+  @Benchmark
+  public Object getTileGrid() {
+    return this.targets.tileGrid(this.level);
+  }
+}
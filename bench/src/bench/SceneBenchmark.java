@@ -0,0 +1,77 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Drawing a game and clicking on it. Clicks go to a fixed walk of pixels spread over the whole
+// grid, so some land on vehicles and some on empty cells or walls. makeScene only redraws what
+// changed since the last scene, so it is measured both on its own (nothing changed) and after
+// each click (the clicked vehicle's highlight changed).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneBenchmark {
+  static final int CLICKS = 1024;
+
+  @Param({"example", "6", "20", "50", "100"})
+  String board;
+
+  Targets targets;
+  Object game;
+  int[] clickX;
+  int[] clickY;
+  int click;
+
+  @Setup
+  public void setUp() {
+    this.targets = Targets.load();
+    this.game = this.targets.game(this.targets.level(this.board));
+    int[] size = this.targets.pixelSize(this.game);
+    this.clickX = new int[CLICKS];
+    this.clickY = new int[CLICKS];
+    Random rng = new Random(2510);
+    for (int i = 0; i < CLICKS; i++) {
+      this.clickX[i] = rng.nextInt(size[0]);
+      this.clickY[i] = rng.nextInt(size[1]);
+    }
+    this.targets.makeScene(this.game);
+  }
+
+  // the next pixel of the walk
+  int nextClick() {
+    this.click = (this.click + 1) & (CLICKS - 1);
+    return this.click;
+  }
+
+  @Benchmark
+  public Object makeScene() {
+    return this.targets.makeScene(this.game);
+  }
+
+  @Benchmark
+  public Object onMouseClicked() {
+    int i = this.nextClick();
+    return this.targets.onMouseClicked(this.game, this.clickX[i], this.clickY[i]);
+  }
+
+  @Benchmark
+  public Object clickThenMakeScene() {
+    int i = this.nextClick();
+    this.targets.onMouseClicked(this.game, this.clickX[i], this.clickY[i]);
+    return this.targets.makeScene(this.game);
+  }
+}
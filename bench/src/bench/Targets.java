@@ -0,0 +1,61 @@
+package bench;
+
+// The game code the benchmarks measure. The game's classes are in the default package, which
+// JMH benchmarks (and anything else in a named package) cannot refer to, so the benchmarks go
+// through this interface instead: BenchTargets, in the default package, implements it, and is
+// loaded by name once per trial. Game objects are passed around as Object; every call is to
+// the one implementation, so the JIT inlines it and the benchmarks measure the game code.
+public interface Targets {
+  // the BenchTargets implementation
+  static Targets load() {
+    try {
+      return (Targets) Class.forName("BenchTargets").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("The game classes are not on the class path.", e);
+    }
+  }
+
+  // the level string of a benchmark's board parameter, the same every time: "example" is the
+  // first example level, and a number n is a random board with n x n open cells and up to a
+  // third of that many vehicles dropped on it
+  String level(String board);
+
+  // RushHourUtils.getVehiclesList of the whole level
+  Object vehiclesList(String level);
+
+  // RushHourUtils.getTileGrid of the whole level
+  Object tileGrid(String level);
+
+  // a RushHour game of level
+  Object game(String level);
+
+  // RushHour.makeScene of game
+  Object makeScene(Object game);
+
+  // RushHour.onMouseClicked of game at the given pixel
+  Object onMouseClicked(Object game, int x, int y);
+
+  // the game's grid's width and height in pixels
+  int[] pixelSize(Object game);
+
+  // the game's vehicles, in list order
+  Object[] vehicles(Object game);
+
+  // Vehicle.overlaps
+  boolean overlaps(Object vehicle, Object that);
+
+  // Vehicle.toTiles
+  Object toTiles(Object vehicle);
+
+  // the game's vehicles as an IList
+  Object vehicleList(Object game);
+
+  // IList.map of list, from each vehicle to its tile size
+  Object map(Object list);
+
+  // IList.fold of list, adding up the vehicles' x1
+  int fold(Object list);
+
+  // IList.append of that list to list
+  Object append(Object list, Object that);
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Checking a vehicle against every other vehicle of the board for overlaps, as an overlap check
+// of a whole board does once per vehicle, and turning a vehicle into its tiles. Each call moves
+// on to the board's next vehicle.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleBenchmark {
+  @Param({"example", "6", "20", "50", "100"})
+  String board;
+
+  Targets targets;
+  Object[] vehicles;
+  int next;
+
+  @Setup
+  public void setUp() {
+    this.targets = Targets.load();
+    this.vehicles = this.targets.vehicles(this.targets.game(this.targets.level(this.board)));
+  }
+
+  // the next vehicle of the board
+  Object nextVehicle() {
+    this.next = this.next + 1 == this.vehicles.length ? 0 : this.next + 1;
+    return this.vehicles[this.next];
+  }
+
+  @Benchmark
+  public int overlaps() {
+    Object vehicle = this.nextVehicle();
+    int count = 0;
+    for (Object that : this.vehicles) {
+      if (that != vehicle && this.targets.overlaps(vehicle, that)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public Object toTiles() {
+    return this.targets.toTiles(this.nextVehicle());
+  }
+}
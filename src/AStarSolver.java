@@ -0,0 +1,292 @@
+import java.util.Arrays;
+
+// Represents a lower bound on the number of moves still needed to win a board. Estimates must
+// never be more than the real number of moves, so the informed solvers stay optimal.
+interface IHeuristic {
+  // estimates the moves needed to win the board in its current position
+  int estimate(BoardState board);
+}
+
+// Since sliding a vehicle any number of cells is one move, the target's distance to the exit
+// only tells us it needs at least one more move, unless it is already there.
+class ExitDistance implements IHeuristic {
+  public int estimate(BoardState board) {
+    if (board.isWon()) {
+      return 0;
+    } else {
+      return 1;
+    }
+  }
+}
+
+// One move for the target, plus one for each vehicle standing between the target and the
+// exit, since each of those has to get out of the way at least once. The vehicles are read off
+// the board's cell index, one cell at a time from the target to the exit.
+class BlockingVehicles implements IHeuristic {
+  public int estimate(BoardState board) {
+    if (board.isWon()) {
+      return 0;
+    }
+    int t = board.target;
+    int exit = board.index(board.exitCol, board.exitRow);
+    int back = board.cellOf(t, board.pos[t], 0);
+    int step = board.horizontal[t] ? 1 : board.cols;
+    int first;
+    if (exit > back) {
+      first = board.cellOf(t, board.pos[t], board.length[t] - 1) + step;
+    } else {
+      first = back - step;
+      step = -step;
+    }
+
+    int blockers = 0;
+    int previous = 0;
+    for (int i = first; (step > 0 && i <= exit) || (step < 0 && i >= exit); i += step) {
+      int owner = board.owner[i];
+      // a vehicle lying along the target's path covers several cells in a row
+      if (owner != 0 && owner != previous) {
+        blockers++;
+      }
+      previous = owner;
+    }
+    return blockers + 1;
+  }
+}
+
+// Finds a shortest list of moves with A* search: states are taken from a StateHeap in order of
+// moves made so far plus the heuristic's estimate of the moves left, so states that look far
+// from the exit are never expanded if a solution is found first. Both heuristics above change by
+// at most one per move, so the first time a state comes off the heap it was reached optimally.
+class AStarSolver extends RushHourSolver {
+  IHeuristic heuristic;
+
+  AStarSolver(BoardState board, IHeuristic heuristic) {
+    super(board);
+    this.heuristic = heuristic;
+  }
+
+  AStarSolver(RushHour game, IHeuristic heuristic) {
+    this(game.board, heuristic);
+  }
+
+  /*
+  F:
+  board -- BoardState
+  start -- long
+  expanded -- int
+  heuristic -- IHeuristic
+  M:
+  solve -- Optional<IList<Move>>
+  isSolvable -- boolean
+  pathTo -- IList<Move>
+  push -- void
+  MoF:
+  heuristic.estimate -- int
+   */
+
+  // finds a shortest list of moves that wins the level, or None if it cannot be won
+  Optional<IList<Move>> solve() {
+    StateMap closed = new StateMap();
+    StateHeap open = new StateHeap();
+    MoveGenerator generator = new MoveGenerator(this.board);
+    int[] moveList = new int[generator.maxMoves()];
+    this.board.unpack(this.start);
+    open.add(this.start, this.start, 0, this.heuristic.estimate(this.board));
+    this.expanded = 0;
+
+    while (!open.isEmpty()) {
+      int moves = open.peekMoves();
+      long parent = open.peekParent();
+      long state = open.poll();
+      if (!closed.putIfAbsent(state, parent)) {
+        continue;
+      }
+      this.board.unpack(state);
+      this.expanded++;
+      if (this.board.isWon()) {
+        return new Some<>(this.pathTo(state, closed));
+      }
+
+      int count = generator.generate(moveList);
+      for (int i = 0; i < count; i++) {
+        this.push(open, closed, state, MoveGenerator.vehicleOf(moveList[i]),
+                MoveGenerator.positionOf(moveList[i]), moves + 1);
+      }
+    }
+    return new None<>();
+  }
+
+  // EFFECT: adds the state reached by moving vehicle v of state to position q onto the heap,
+  // unless it was already expanded
+  void push(StateHeap open, StateMap closed, long state, int v, int q, int moves) {
+    long child = this.board.withPosition(state, v, q);
+    if (!closed.containsKey(child)) {
+      int p = this.board.pos[v];
+      this.board.moveTo(v, q);
+      open.add(child, state, moves, moves + this.heuristic.estimate(this.board));
+      this.board.moveTo(v, p);
+    }
+  }
+}
+
+// Finds a shortest list of moves with iterative-deepening A*: a depth-first search that gives up
+// on any path whose moves plus estimate go over a bound, raising the bound until a solution
+// shows up. Besides the current path it only keeps a fixed-size table of states seen in the
+// current round (newer entries simply overwrite older ones), so its memory does not grow with
+// the search. It is meant for hints on boards that can be won: proving that a board can't be won
+// may take it far longer than breadth-first search, so it gives up after a limit of expanded
+// states.
+class IDAStarSolver extends RushHourSolver {
+  IHeuristic heuristic;
+  long limit;
+  // the moves of the current path: vehicle, old position and new position
+  int[] pathVehicle;
+  int[] pathFrom;
+  int[] pathTo;
+  // the moves listed at each depth of the current path
+  MoveGenerator generator;
+  int[][] moveLists;
+  // the states seen so far, the fewest moves each was reached in, and the round it was seen in
+  long[] seenStates;
+  int[] seenMoves;
+  int[] seenRound;
+  int round;
+
+  IDAStarSolver(BoardState board, IHeuristic heuristic, long limit, int tableBits) {
+    super(board);
+    this.heuristic = heuristic;
+    this.limit = limit;
+    this.pathVehicle = new int[64];
+    this.pathFrom = new int[64];
+    this.pathTo = new int[64];
+    this.generator = new MoveGenerator(this.board);
+    this.moveLists = new int[64][];
+    this.seenStates = new long[1 << tableBits];
+    this.seenMoves = new int[1 << tableBits];
+    this.seenRound = new int[1 << tableBits];
+  }
+
+  IDAStarSolver(RushHour game, IHeuristic heuristic) {
+    this(game.board, heuristic, 10000000, 18);
+  }
+
+  /*
+  F:
+  board -- BoardState
+  start -- long
+  expanded -- int
+  heuristic -- IHeuristic
+  limit -- long
+  pathVehicle, pathFrom, pathTo -- int[]
+  generator -- MoveGenerator
+  moveLists -- int[][]
+  seenStates -- long[]
+  seenMoves, seenRound -- int[]
+  round -- int
+  M:
+  solve -- Optional<IList<Move>>
+  isSolvable -- boolean
+  search -- int
+  tryMove -- int
+  seenBefore -- boolean
+   */
+
+  // finds a shortest list of moves that wins the level, or None if it cannot be won
+  // throws an IllegalStateException if more than limit states get expanded
+  Optional<IList<Move>> solve() {
+    this.board.unpack(this.start);
+    this.expanded = 0;
+    int bound = this.heuristic.estimate(this.board);
+    while (true) {
+      this.round++;
+      int result = this.search(this.start, 0, bound, -1);
+      this.board.unpack(this.start);
+      if (result < 0) {
+        IList<Move> moves = new MT<>();
+        for (int i = -result - 2; i >= 0; i--) {
+          moves = new Cons<>(new Move(this.pathVehicle[i], this.pathFrom[i], this.pathTo[i]),
+                  moves);
+        }
+        return new Some<>(moves);
+      }
+      if (result == Integer.MAX_VALUE) {
+        return new None<>();
+      }
+      bound = result;
+    }
+  }
+
+  // searches below the current position, the given state, which was reached in the given number
+  // of moves, the last one moving vehicle lastMoved
+  // returns -(moves + 1) when a solution is found (its moves are in the path arrays), otherwise
+  // the smallest moves + estimate that went over the bound (Integer.MAX_VALUE if none did)
+  int search(long state, int moves, int bound, int lastMoved) {
+    if (this.seenBefore(state, moves)) {
+      return Integer.MAX_VALUE;
+    }
+    int f = moves + this.heuristic.estimate(this.board);
+    if (f > bound) {
+      return f;
+    }
+    if (this.board.isWon()) {
+      return -(moves + 1);
+    }
+    this.expanded++;
+    if (this.expanded > this.limit) {
+      throw new IllegalStateException("Gave up after expanding " + this.limit + " states.");
+    }
+    if (moves == this.pathVehicle.length) {
+      this.pathVehicle = Arrays.copyOf(this.pathVehicle, moves * 2);
+      this.pathFrom = Arrays.copyOf(this.pathFrom, moves * 2);
+      this.pathTo = Arrays.copyOf(this.pathTo, moves * 2);
+      this.moveLists = Arrays.copyOf(this.moveLists, moves * 2);
+    }
+    if (this.moveLists[moves] == null) {
+      this.moveLists[moves] = new int[this.generator.maxMoves()];
+    }
+
+    int smallest = Integer.MAX_VALUE;
+    int[] moveList = this.moveLists[moves];
+    int count = this.generator.generate(moveList);
+    for (int i = 0; i < count; i++) {
+      int v = MoveGenerator.vehicleOf(moveList[i]);
+      // moving the same vehicle twice in a row could always be done in one move
+      if (v != lastMoved) {
+        int q = MoveGenerator.positionOf(moveList[i]);
+        int result = this.tryMove(state, v, this.board.pos[v], q, moves, bound);
+        if (result < 0) {
+          return result;
+        }
+        smallest = Math.min(smallest, result);
+      }
+    }
+    return smallest;
+  }
+
+  // moves vehicle v of state from p to q, searches below that, and moves it back;
+  // returns the result of the search
+  int tryMove(long state, int v, int p, int q, int moves, int bound) {
+    this.board.moveTo(v, q);
+    this.pathVehicle[moves] = v;
+    this.pathFrom[moves] = p;
+    this.pathTo[moves] = q;
+    int result = this.search(this.board.withPosition(state, v, q), moves + 1, bound, v);
+    this.board.moveTo(v, p);
+    return result;
+  }
+
+  // was state already searched this round, in at most the given number of moves? If so there is
+  // nothing new below it.
+  // EFFECT: otherwise remembers state as reached in the given number of moves
+  boolean seenBefore(long state, int moves) {
+    int i = StateMap.hash(state) & (this.seenStates.length - 1);
+    if (this.seenRound[i] == this.round && this.seenStates[i] == state
+            && this.seenMoves[i] <= moves) {
+      return true;
+    }
+    this.seenStates[i] = state;
+    this.seenMoves[i] = moves;
+    this.seenRound[i] = this.round;
+    return false;
+  }
+}
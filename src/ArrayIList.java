@@ -0,0 +1,146 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Represents an IList<T> kept in an array instead of a chain of Cons cells, so map, filter and
+// fold are plain loops (no recursion, however long the list) and appending to the end is
+// amortized O(1) per item. Lists are never changed once made: appending makes a new list that
+// shares the array when it can. The array has room to grow, and the first list to append past
+// the end of the part already in use claims that room; any other list sharing the array that
+// appends afterwards gets its own copy, so neither sees the other's items.
+class ArrayIList<T> implements IList<T> {
+  // the items, the first size of which belong to this list
+  Object[] items;
+  int size;
+  // how much of items is in use by the lists sharing it, or -1 while one of them is appending
+  AtomicInteger used;
+
+  ArrayIList() {
+    this(new Object[8], 0, new AtomicInteger(0));
+  }
+
+  ArrayIList(Object[] items, int size, AtomicInteger used) {
+    this.items = items;
+    this.size = size;
+    this.used = used;
+  }
+
+  /*
+  F:
+  items -- Object[]
+  size -- int
+  used -- AtomicInteger
+  M:
+  map -- IList<U>
+  filter -- IList<T>
+  fold -- U
+  append -- IList<T>
+  lazy -- ILazyList<T>
+  get -- T
+  length -- int
+  toCons -- IList<T>
+  extendable -- ArrayIList<T>
+  push -- void
+   */
+
+  // Applies the func to all elements in the list.
+  public <U> IList<U> map(Function<T, U> func) {
+    Object[] mapped = new Object[Math.max(this.size, 1)];
+    for (int i = 0; i < this.size; i++) {
+      mapped[i] = func.apply(this.get(i));
+    }
+    return new ArrayIList<>(mapped, this.size, new AtomicInteger(this.size));
+  }
+
+  // Produces a list only containing elements for which func returns true.
+  public IList<T> filter(Function<T, Boolean> func) {
+    Object[] kept = new Object[Math.max(this.size, 1)];
+    int count = 0;
+    for (int i = 0; i < this.size; i++) {
+      T item = this.get(i);
+      if (func.apply(item)) {
+        kept[count] = item;
+        count++;
+      }
+    }
+    return new ArrayIList<>(kept, count, new AtomicInteger(count));
+  }
+
+  // Applies the function from left to right to each item in the list and combines them.
+  public <U> U fold(BiFunction<T, U, U> func, U value) {
+    U result = value;
+    for (int i = 0; i < this.size; i++) {
+      result = func.apply(this.get(i), result);
+    }
+    return result;
+  }
+
+  // Appends that list to this one, creating a new list.
+  public IList<T> append(IList<T> that) {
+    ArrayIList<T> result = this.extendable();
+    that.fold(new PushOnto<>(), result);
+    // let the next list ending where this one ends grow into the array
+    result.used.set(result.size);
+    return result;
+  }
+
+  // A lazy view of this list.
+  public ILazyList<T> lazy() {
+    return new LazyList<>(this);
+  }
+
+  // the item at index i
+  @SuppressWarnings("unchecked")
+  T get(int i) {
+    if (i < 0 || i >= this.size) {
+      throw new IndexOutOfBoundsException("No item at " + i + ".");
+    }
+    return (T) this.items[i];
+  }
+
+  // how many items this list has
+  int length() {
+    return this.size;
+  }
+
+  // the same items as a chain of Cons cells, which checkExpect can compare with lists built from
+  // Cons and MT
+  IList<T> toCons() {
+    IList<T> result = new MT<>();
+    for (int i = this.size - 1; i >= 0; i--) {
+      result = new Cons<>(this.get(i), result);
+    }
+    return result;
+  }
+
+  // a new list with the same items as this one that is free to push onto the end of its array:
+  // this list's array if nothing was put after this list's items yet, otherwise a copy
+  ArrayIList<T> extendable() {
+    if (this.used.compareAndSet(this.size, -1)) {
+      return new ArrayIList<>(this.items, this.size, this.used);
+    }
+    Object[] copy = Arrays.copyOf(this.items, Math.max(8, this.size * 2));
+    return new ArrayIList<>(copy, this.size, new AtomicInteger(-1));
+  }
+
+  // EFFECT: adds item to the end of this list, moving to a bigger array if this one is full
+  // only for lists made by extendable that have not been handed out yet
+  void push(T item) {
+    if (this.size == this.items.length) {
+      // the old array stays claimed, so the lists still using it copy it before they grow
+      this.items = Arrays.copyOf(this.items, this.size * 2);
+      this.used = new AtomicInteger(-1);
+    }
+    this.items[this.size] = item;
+    this.size++;
+  }
+}
+
+// Adds each item of a list onto the end of an ArrayIList being built.
+class PushOnto<T> implements BiFunction<T, ArrayIList<T>, ArrayIList<T>> {
+  public ArrayIList<T> apply(T item, ArrayIList<T> list) {
+    list.push(item);
+    return list;
+  }
+}
@@ -0,0 +1,187 @@
+import java.awt.Color;
+import java.util.ArrayList;
+
+import javalib.funworld.WorldScene;
+
+// Draws a BoardState for RushHour.makeScene without rebuilding what did not change. The white
+// background and the border tiles never move, so they are drawn once into a static layer when the
+// renderer is made. The tiles of each vehicle are kept along with the position they were made for,
+// and only remade once the vehicle moves. A frame starts from the last frame and composites only
+// what changed on top of it: the cells a moved vehicle (or the old highlight) left are painted
+// white, then the moved vehicles, any vehicle under a repainted cell, and the highlight (if it
+// changed or was drawn over) are drawn again. If nothing changed the last frame is handed back as
+// it is. Scenes are immutable, so every frame built this way keeps the images of the frames before
+// it; once a frame has gained as many images as a full frame of vehicles holds, the next one is
+// built from the static layer again, so the scene never grows past about twice its full size.
+class BoardRenderer {
+  TileGrid grid;
+  int tileSize;
+  WorldScene staticLayer;
+  // the tiles of every drawn vehicle and the position they were made for
+  ArrayList<IList<Tile>> vehicleTiles;
+  int[] drawnPos;
+  WorldScene lastFrame;
+  Optional<Vehicle> lastHighlight;
+  // how many images a frame built from the static layer puts on it, and how many have been put
+  // on the last frame since then
+  int fullImages;
+  int addedImages;
+
+  BoardRenderer(TileGrid grid, int tileSize) {
+    this.grid = grid;
+    this.tileSize = tileSize;
+    this.staticLayer = grid.makeStaticScene(tileSize);
+    this.vehicleTiles = new ArrayList<>();
+    this.drawnPos = new int[0];
+  }
+
+  /*
+  F:
+  grid -- TileGrid
+  tileSize -- int
+  staticLayer -- WorldScene
+  vehicleTiles -- ArrayList<IList<Tile>>
+  drawnPos -- int[]
+  lastFrame -- WorldScene
+  lastHighlight -- Optional<Vehicle>
+  fullImages -- int
+  addedImages -- int
+  M:
+  render -- WorldScene
+  rebuild -- WorldScene
+  refresh -- boolean[]
+  markCells -- void
+  covers -- boolean
+  count -- int
+  MoF:
+  grid.makeStaticScene -- WorldScene
+   */
+
+  // draws the vehicles of board that came from its vehicle list, then the highlighted vehicle in
+  // yellow, on top of the static layer
+  WorldScene render(BoardState board, Optional<Vehicle> highlight) {
+    if (this.lastFrame == null || this.drawnPos.length != board.listed) {
+      return this.rebuild(board, highlight);
+    }
+    boolean[] dirty = new boolean[this.grid.cols * this.grid.rows];
+    boolean[] moved = this.refresh(board, dirty);
+    boolean anyMoved = false;
+    for (boolean m : moved) {
+      anyMoved = anyMoved || m;
+    }
+    if (!anyMoved && highlight == this.lastHighlight) {
+      return this.lastFrame;
+    }
+    if (this.addedImages >= this.fullImages) {
+      return this.rebuild(board, highlight);
+    }
+    boolean newHighlight = highlight != this.lastHighlight;
+    if (newHighlight && this.lastHighlight.isSome()) {
+      this.markCells(this.lastHighlight.unwrap().toTiles(), dirty);
+    }
+    DrawTilesOntoGrid draw = new DrawTilesOntoGrid(this.tileSize);
+    WorldScene scene = this.lastFrame;
+    int added = 0;
+    for (int col = 0; col < this.grid.cols; col++) {
+      for (int row = 0; row < this.grid.rows; row++) {
+        if (dirty[col * this.grid.rows + row]) {
+          scene = draw.apply(new Tile(col, row, Color.WHITE), scene);
+          added++;
+        }
+      }
+    }
+    // in list order, so vehicles that overlap still cover each other as in a full frame
+    boolean[] drawn = new boolean[dirty.length];
+    for (int v = 0; v < moved.length; v++) {
+      IList<Tile> tiles = this.vehicleTiles.get(v);
+      if (moved[v] || this.covers(tiles, dirty)) {
+        scene = tiles.fold(draw, scene);
+        added += count(tiles);
+        this.markCells(tiles, drawn);
+      }
+    }
+    if (highlight.isSome() && (newHighlight
+            || this.covers(highlight.unwrap().toTiles(), dirty)
+            || this.covers(highlight.unwrap().toTiles(), drawn))) {
+      IList<Tile> tiles = highlight.unwrap().toTilesWithColor(Color.YELLOW);
+      scene = tiles.fold(draw, scene);
+      added += count(tiles);
+    }
+    this.addedImages += added;
+    this.lastFrame = scene;
+    this.lastHighlight = highlight;
+    return scene;
+  }
+
+  // draws every vehicle tile and the highlight onto the static layer
+  // EFFECT: updates vehicleTiles, drawnPos, lastFrame, lastHighlight, fullImages and addedImages
+  WorldScene rebuild(BoardState board, Optional<Vehicle> highlight) {
+    this.refresh(board, new boolean[this.grid.cols * this.grid.rows]);
+    DrawTilesOntoGrid draw = new DrawTilesOntoGrid(this.tileSize);
+    WorldScene scene = this.staticLayer;
+    int images = 0;
+    for (IList<Tile> tiles : this.vehicleTiles) {
+      scene = tiles.fold(draw, scene);
+      images += count(tiles);
+    }
+    if (highlight.isSome()) {
+      IList<Tile> tiles = highlight.unwrap().toTilesWithColor(Color.YELLOW);
+      scene = tiles.fold(draw, scene);
+      images += count(tiles);
+    }
+    this.fullImages = images;
+    this.addedImages = 0;
+    this.lastFrame = scene;
+    this.lastHighlight = highlight;
+    return scene;
+  }
+
+  // remakes the tiles of every vehicle that moved since the last frame, returning which did
+  // EFFECT: updates vehicleTiles and drawnPos, and marks the cells the moved vehicles left in
+  // dirty
+  boolean[] refresh(BoardState board, boolean[] dirty) {
+    boolean[] moved = new boolean[board.listed];
+    if (this.drawnPos.length != board.listed) {
+      this.vehicleTiles.clear();
+      this.drawnPos = new int[board.listed];
+      for (int v = 0; v < board.listed; v++) {
+        this.vehicleTiles.add(board.toVehicle(v).toTiles());
+        this.drawnPos[v] = board.pos[v];
+        moved[v] = true;
+      }
+      return moved;
+    }
+    for (int v = 0; v < board.listed; v++) {
+      if (this.drawnPos[v] != board.pos[v]) {
+        this.markCells(this.vehicleTiles.get(v), dirty);
+        this.vehicleTiles.set(v, board.toVehicle(v).toTiles());
+        this.drawnPos[v] = board.pos[v];
+        moved[v] = true;
+      }
+    }
+    return moved;
+  }
+
+  // EFFECT: marks the cell of every tile that lies on the grid in dirty
+  void markCells(IList<Tile> tiles, boolean[] dirty) {
+    tiles.fold((tile, cells) -> {
+      if (tile.col >= 0 && tile.col < this.grid.cols && tile.row >= 0
+              && tile.row < this.grid.rows) {
+        cells[tile.col * this.grid.rows + tile.row] = true;
+      }
+      return cells;
+    }, dirty);
+  }
+
+  // does any of the tiles lie on a cell marked in dirty?
+  boolean covers(IList<Tile> tiles, boolean[] dirty) {
+    return tiles.fold((tile, found) -> found
+            || tile.col >= 0 && tile.col < this.grid.cols && tile.row >= 0
+            && tile.row < this.grid.rows && dirty[tile.col * this.grid.rows + tile.row], false);
+  }
+
+  // how many tiles are in the list
+  static int count(IList<Tile> tiles) {
+    return tiles.fold((tile, n) -> n + 1, 0);
+  }
+}
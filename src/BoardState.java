@@ -0,0 +1,482 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+// Represents the state of a RushHour board as packed bitmasks. Every cell of the grid
+// (borders included) gets one bit at index row * cols + col; the board keeps one mask of
+// every occupied cell, one mask of the walls, and one mask per vehicle. Vehicles are numbered
+// in the order they appear in the IList<Vehicle> the board was built from. Alongside the masks,
+// an index from each cell to the vehicle on it answers "who is here?" in one lookup.
+class BoardState {
+  int cols;
+  int rows;
+  int exitCol;
+  int exitRow;
+  int tileSize;
+  // number of longs needed to hold one bit per cell
+  int words;
+  // the border cells, except for the exit
+  long[] walls;
+  // every cell covered by at least one vehicle
+  long[] occupied;
+  // the cells covered by each vehicle
+  long[][] vehicleMasks;
+  // for each cell, 1 + the index of the vehicle on it, or 0 if there is none; when vehicles
+  // overlap, the one given first
+  int[] owner;
+  // for each cell, how many vehicles cover it
+  int[] covers;
+  // does each vehicle slide left/right (true) or up/down (false)?
+  boolean[] horizontal;
+  // how many cells each vehicle covers
+  int[] length;
+  // the row of a horizontal vehicle, or the column of a vertical one (never changes)
+  int[] lane;
+  // the leftmost column of a horizontal vehicle, or the topmost row of a vertical one
+  int[] pos;
+  Color[] colors;
+  // the index of the vehicle that has to reach the exit
+  int target;
+  // how many vehicles came from the IList<Vehicle>; if the target was not in it, it comes after
+  int listed;
+  // how many bits one vehicle's position takes up in a packed state
+  int bits;
+
+  BoardState(IList<Vehicle> vehicles, TileGrid grid, Vehicle targetVehicle) {
+    ArrayList<Vehicle> all = vehicles.fold(new CollectVehicles(), new ArrayList<>());
+    int targetIndex = all.size();
+    for (int i = 0; i < all.size(); i++) {
+      if (all.get(i).sameCells(targetVehicle)) {
+        targetIndex = i;
+        break;
+      }
+    }
+    this.listed = all.size();
+    if (targetIndex == all.size()) {
+      all.add(targetVehicle);
+    }
+
+    this.cols = grid.cols;
+    this.rows = grid.rows;
+    this.exitCol = grid.exitCol;
+    this.exitRow = grid.exitRow;
+    this.tileSize = targetVehicle.tileSize;
+    this.words = (this.cols * this.rows + 63) >>> 6;
+    this.target = targetIndex;
+    this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(this.cols, this.rows) - 1));
+
+    int count = all.size();
+    this.walls = new long[this.words];
+    this.occupied = new long[this.words];
+    this.vehicleMasks = new long[count][this.words];
+    this.owner = new int[this.cols * this.rows];
+    this.covers = new int[this.cols * this.rows];
+    this.horizontal = new boolean[count];
+    this.length = new int[count];
+    this.lane = new int[count];
+    this.pos = new int[count];
+    this.colors = new Color[count];
+
+    for (int c = 0; c < this.cols; c++) {
+      setBit(this.walls, this.index(c, 0));
+      setBit(this.walls, this.index(c, this.rows - 1));
+    }
+    for (int r = 0; r < this.rows; r++) {
+      setBit(this.walls, this.index(0, r));
+      setBit(this.walls, this.index(this.cols - 1, r));
+    }
+    clearBit(this.walls, this.index(this.exitCol, this.exitRow));
+
+    for (int i = 0; i < count; i++) {
+      Vehicle v = all.get(i);
+      this.horizontal[i] = v.width() > v.height();
+      this.length[i] = Math.max(v.width(), v.height());
+      this.lane[i] = this.horizontal[i] ? v.y1 : v.x1;
+      this.pos[i] = this.horizontal[i] ? Math.min(v.x1, v.x2) : Math.min(v.y1, v.y2);
+      this.colors[i] = v.color;
+      this.checkInside(i);
+      this.stamp(i);
+    }
+  }
+
+  // copies that board, so the copy can be moved around without changing that one
+  BoardState(BoardState that) {
+    this.cols = that.cols;
+    this.rows = that.rows;
+    this.exitCol = that.exitCol;
+    this.exitRow = that.exitRow;
+    this.tileSize = that.tileSize;
+    this.words = that.words;
+    this.target = that.target;
+    this.listed = that.listed;
+    this.bits = that.bits;
+    this.walls = that.walls.clone();
+    this.occupied = that.occupied.clone();
+    this.vehicleMasks = new long[that.vehicleMasks.length][];
+    for (int v = 0; v < this.vehicleMasks.length; v++) {
+      this.vehicleMasks[v] = that.vehicleMasks[v].clone();
+    }
+    this.owner = that.owner.clone();
+    this.covers = that.covers.clone();
+    this.horizontal = that.horizontal.clone();
+    this.length = that.length.clone();
+    this.lane = that.lane.clone();
+    this.pos = that.pos.clone();
+    this.colors = that.colors.clone();
+  }
+
+  /*
+  F:
+  cols, rows, exitCol, exitRow, tileSize, words, target, listed, bits -- int
+  walls, occupied -- long[]
+  vehicleMasks -- long[][]
+  owner, covers -- int[]
+  horizontal -- boolean[]
+  length, lane, pos -- int[]
+  colors -- Color[]
+  M:
+  index -- int
+  vehicleCount -- int
+  cellOf -- int
+  isOccupied -- boolean
+  ownerOf -- int
+  vehicleAt -- Optional<Vehicle>
+  isBlocked -- boolean
+  overlaps -- boolean
+  findOverlaps -- IList<Overlap>
+  checkNoOverlaps -- void
+  checkInside -- void
+  isWon -- boolean
+  targetWinsAt -- boolean
+  canEnter -- boolean
+  fitsInLong -- boolean
+  pack -- long
+  unpack -- void
+  positionIn -- int
+  withPosition -- long
+  slideTo -- boolean
+  moveTo -- void
+  lift -- void
+  stamp -- void
+  toVehicle -- Vehicle
+  toVehicles -- IList<Vehicle>
+   */
+
+  // the bit index of the cell at the given column and row
+  int index(int col, int row) {
+    return row * this.cols + col;
+  }
+
+  // how many vehicles are on this board
+  int vehicleCount() {
+    return this.pos.length;
+  }
+
+  // the bit index of the given cell (0 is the back) of vehicle v when it sits at position p
+  int cellOf(int v, int p, int cell) {
+    if (this.horizontal[v]) {
+      return this.index(p + cell, this.lane[v]);
+    } else {
+      return this.index(this.lane[v], p + cell);
+    }
+  }
+
+  // is there a vehicle on the given cell?
+  boolean isOccupied(int col, int row) {
+    return col >= 0 && col < this.cols && row >= 0 && row < this.rows
+            && getBit(this.occupied, this.index(col, row));
+  }
+
+  // the index of the vehicle on the given cell (the first one given, if several are), or -1 if
+  // there is none
+  int ownerOf(int col, int row) {
+    if (col < 0 || col >= this.cols || row < 0 || row >= this.rows) {
+      return -1;
+    }
+    return this.owner[this.index(col, row)] - 1;
+  }
+
+  // the vehicle on the given cell (the first one given, if several are), if there is one
+  Optional<Vehicle> vehicleAt(int col, int row) {
+    int v = this.ownerOf(col, row);
+    if (v < 0) {
+      return new None<>();
+    } else {
+      return new Some<>(this.toVehicle(v));
+    }
+  }
+
+  // is the given cell a wall, a vehicle, or off the board?
+  boolean isBlocked(int col, int row) {
+    if (col < 0 || col >= this.cols || row < 0 || row >= this.rows) {
+      return true;
+    }
+    int i = this.index(col, row);
+    return getBit(this.occupied, i) || getBit(this.walls, i);
+  }
+
+  // do vehicles v and w cover a common cell?
+  boolean overlaps(int v, int w) {
+    long[] a = this.vehicleMasks[v];
+    long[] b = this.vehicleMasks[w];
+    for (int i = 0; i < this.words; i++) {
+      if ((a[i] & b[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // has the target vehicle reached the exit?
+  boolean isWon() {
+    return getBit(this.vehicleMasks[this.target], this.index(this.exitCol, this.exitRow));
+  }
+
+  // would the target vehicle be on the exit if its back were at position p?
+  boolean targetWinsAt(int p) {
+    int exit = this.index(this.exitCol, this.exitRow);
+    for (int c = 0; c < this.length[this.target]; c++) {
+      if (this.cellOf(this.target, p, c) == exit) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // can vehicle v move onto the cell with the given bit index? Only the target may use the exit.
+  boolean canEnter(int v, int i) {
+    return !getBit(this.occupied, i)
+            && !getBit(this.walls, i)
+            && (v == this.target || i != this.index(this.exitCol, this.exitRow));
+  }
+
+  // can the position of every vehicle be packed into a single long?
+  boolean fitsInLong() {
+    return this.bits * this.vehicleCount() <= 64;
+  }
+
+  // packs the position of every vehicle into a long, vehicle v taking the bits starting at
+  // v * this.bits
+  long pack() {
+    if (!this.fitsInLong()) {
+      throw new IllegalStateException("This board has too many vehicles to pack into a long.");
+    }
+    long state = 0;
+    for (int v = 0; v < this.vehicleCount(); v++) {
+      state |= (long) this.pos[v] << (v * this.bits);
+    }
+    return state;
+  }
+
+  // the position of vehicle v in the given packed state
+  int positionIn(long state, int v) {
+    return (int) ((state >>> (v * this.bits)) & ((1L << this.bits) - 1));
+  }
+
+  // the packed state that differs from the given one only by vehicle v being at position p
+  long withPosition(long state, int v, int p) {
+    int shift = v * this.bits;
+    return (state & ~(((1L << this.bits) - 1) << shift)) | ((long) p << shift);
+  }
+
+  // EFFECT: moves every vehicle to the position it has in the given packed state
+  // (every moved vehicle is lifted off the board before any is put back, since a vehicle's new
+  // cells may still be marked as covered by one that has not moved yet)
+  void unpack(long state) {
+    for (int v = 0; v < this.vehicleCount(); v++) {
+      if (this.positionIn(state, v) != this.pos[v]) {
+        this.lift(v);
+      }
+    }
+    for (int v = 0; v < this.vehicleCount(); v++) {
+      int p = this.positionIn(state, v);
+      if (p != this.pos[v]) {
+        this.pos[v] = p;
+        this.stamp(v);
+      }
+    }
+  }
+
+  // slides vehicle v so that its back sits at position p, if every cell it sweeps through on the
+  // way is free, and returns whether it moved; only the cells the vehicle would newly cover are
+  // checked, against the occupancy mask, rather than every other vehicle
+  // EFFECT: moves v (see moveTo) when the way is clear
+  boolean slideTo(int v, int p) {
+    int last = this.horizontal[v] ? this.cols : this.rows;
+    if (p < 0 || p + this.length[v] > last) {
+      return false;
+    }
+    int front = this.length[v] - 1;
+    for (int q = this.pos[v] + 1; q <= p; q++) {
+      if (!this.canEnter(v, this.cellOf(v, q, front))) {
+        return false;
+      }
+    }
+    for (int q = this.pos[v] - 1; q >= p; q--) {
+      if (!this.canEnter(v, this.cellOf(v, q, 0))) {
+        return false;
+      }
+    }
+    this.moveTo(v, p);
+    return true;
+  }
+
+  // every pair of vehicles that cover a common cell, once for each cell they share, in the order
+  // the cells are met going through the vehicles in order. Each vehicle's cells are visited once,
+  // chaining together the vehicles seen on each cell, so this takes time in proportion to the
+  // cells covered plus the overlaps found, instead of comparing every pair of vehicles.
+  IList<Overlap> findOverlaps() {
+    int total = 0;
+    for (int v = 0; v < this.vehicleCount(); v++) {
+      total += this.length[v];
+    }
+    // for each cell, the last entry seen on it; each entry holds a vehicle and the entry before
+    int[] lastEntry = new int[this.cols * this.rows];
+    Arrays.fill(lastEntry, -1);
+    int[] entryVehicle = new int[total];
+    int[] entryBefore = new int[total];
+    int entries = 0;
+    ArrayList<Overlap> found = new ArrayList<>();
+    for (int v = 0; v < this.vehicleCount(); v++) {
+      for (int c = 0; c < this.length[v]; c++) {
+        int i = this.cellOf(v, this.pos[v], c);
+        for (int e = lastEntry[i]; e >= 0; e = entryBefore[e]) {
+          found.add(new Overlap(entryVehicle[e], v, i % this.cols, i / this.cols));
+        }
+        entryVehicle[entries] = v;
+        entryBefore[entries] = lastEntry[i];
+        lastEntry[i] = entries;
+        entries++;
+      }
+    }
+    IList<Overlap> overlaps = new MT<>();
+    for (int k = found.size() - 1; k >= 0; k--) {
+      overlaps = new Cons<>(found.get(k), overlaps);
+    }
+    return overlaps;
+  }
+
+  // throws an IllegalArgumentException naming the first overlap, if any vehicles overlap
+  void checkNoOverlaps() {
+    IList<Overlap> overlaps = this.findOverlaps();
+    if (overlaps instanceof Cons) {
+      Overlap first = ((Cons<Overlap>) overlaps).first;
+      throw new IllegalArgumentException("Vehicles " + first.first + " and " + first.second
+              + " overlap at (" + first.col + ", " + first.row + ").");
+    }
+  }
+
+  // throws an exception naming the first cell of vehicle v that is off the grid, if there is one
+  void checkInside(int v) {
+    int along = this.horizontal[v] ? this.cols : this.rows;
+    int across = this.horizontal[v] ? this.rows : this.cols;
+    for (int k = 0; k < this.length[v]; k++) {
+      int p = this.pos[v] + k;
+      if (p < 0 || p >= along || this.lane[v] < 0 || this.lane[v] >= across) {
+        throw new IllegalArgumentException("Vehicle " + v + " covers ("
+                + (this.horizontal[v] ? p : this.lane[v]) + ", "
+                + (this.horizontal[v] ? this.lane[v] : p) + "), which is off the " + this.cols
+                + " x " + this.rows + " grid.");
+      }
+    }
+  }
+
+  // moves vehicle v so that its back sits at position p, without checking the cells in between
+  // EFFECT: updates the position of v, its mask and the board's occupancy
+  void moveTo(int v, int p) {
+    this.lift(v);
+    this.pos[v] = p;
+    this.stamp(v);
+  }
+
+  // EFFECT: marks the cells of vehicle v at its current position as no longer covered
+  void lift(int v) {
+    for (int c = 0; c < this.length[v]; c++) {
+      int i = this.cellOf(v, this.pos[v], c);
+      clearBit(this.vehicleMasks[v], i);
+      this.covers[i]--;
+      if (this.covers[i] == 0) {
+        clearBit(this.occupied, i);
+        this.owner[i] = 0;
+      } else if (this.owner[i] == v + 1) {
+        // another vehicle overlaps this one here, so hand the cell to the first of them
+        for (int w = 0; w < this.vehicleCount(); w++) {
+          if (getBit(this.vehicleMasks[w], i)) {
+            this.owner[i] = w + 1;
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  // EFFECT: marks the cells of vehicle v at its current position as covered
+  void stamp(int v) {
+    for (int c = 0; c < this.length[v]; c++) {
+      int i = this.cellOf(v, this.pos[v], c);
+      setBit(this.vehicleMasks[v], i);
+      setBit(this.occupied, i);
+      this.covers[i]++;
+      if (this.owner[i] == 0 || this.owner[i] > v + 1) {
+        this.owner[i] = v + 1;
+      }
+    }
+  }
+
+  // rebuilds vehicle v at its current position
+  Vehicle toVehicle(int v) {
+    int back = this.pos[v];
+    int front = back + this.length[v] - 1;
+    if (this.horizontal[v]) {
+      return new Vehicle(back, this.lane[v], front, this.lane[v], this.colors[v], this.tileSize);
+    } else {
+      return new Vehicle(this.lane[v], back, this.lane[v], front, this.colors[v], this.tileSize);
+    }
+  }
+
+  // rebuilds every vehicle on this board, in the same order as they were given
+  IList<Vehicle> toVehicles() {
+    IList<Vehicle> result = new MT<>();
+    for (int v = this.vehicleCount() - 1; v >= 0; v--) {
+      result = new Cons<>(this.toVehicle(v), result);
+    }
+    return result;
+  }
+
+  static boolean getBit(long[] mask, int i) {
+    return (mask[i >>> 6] & (1L << i)) != 0;
+  }
+
+  static void setBit(long[] mask, int i) {
+    mask[i >>> 6] |= 1L << i;
+  }
+
+  static void clearBit(long[] mask, int i) {
+    mask[i >>> 6] &= ~(1L << i);
+  }
+}
+
+// Collects the vehicles of an IList<Vehicle> into an ArrayList, keeping their order.
+class CollectVehicles implements BiFunction<Vehicle, ArrayList<Vehicle>, ArrayList<Vehicle>> {
+  public ArrayList<Vehicle> apply(Vehicle vehicle, ArrayList<Vehicle> soFar) {
+    soFar.add(vehicle);
+    return soFar;
+  }
+}
+
+// Represents two vehicles of a BoardState covering the same cell.
+class Overlap {
+  // the vehicles' indices in the BoardState, the one given first first
+  int first;
+  int second;
+  int col;
+  int row;
+
+  Overlap(int first, int second, int col, int row) {
+    this.first = first;
+    this.second = second;
+    this.col = col;
+    this.row = row;
+  }
+}
@@ -0,0 +1,62 @@
+import java.util.HashSet;
+import java.util.Random;
+
+// Reports how much keying states by CanonicalKey shrinks the search. For the ExamplesRushHour
+// levels, and for generated boards whose exit is on the middle row (so mirroring applies), it
+// prints the states the breadth-first solvers put in their visited sets, and how many of all the
+// reachable states are left once states with the same key are merged. It also generates levels
+// together with their mirror images and counts how many CanonicalKey tells apart. Run with
+//   java CanonicalBenchmark [boards] [seed]
+class CanonicalBenchmark {
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : 2510;
+
+    System.out.println("board\tvisited\tcanonical visited\treachable\tcanonical reachable");
+    for (int i = 0; i < SolverBenchmark.EXAMPLE_LEVELS.length; i++) {
+      report("example " + i, LevelStrings.boardFor(SolverBenchmark.EXAMPLE_LEVELS[i]));
+    }
+    // 5 open rows put the exit, on row 3, in the middle of the 7 rows
+    Random rng = new Random(seed);
+    for (int i = 0; i < count; i++) {
+      report("generated 5x5 " + i,
+              LevelStrings.boardFor(LevelStrings.randomLevel(rng, 5, 6)));
+    }
+
+    RushHourUtils utils = new RushHourUtils();
+    CanonicalKey keys = new CanonicalKey();
+    HashSet<String> texts = new HashSet<>();
+    HashSet<Long> canonical = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      String level = LevelStrings.randomLevel(rng, 5, 6);
+      ParsedLevel parsed = utils.parseLevel(level, 1);
+      String mirror = LevelStrings.mirrorLevel(parsed);
+      texts.add(level);
+      texts.add(mirror);
+      canonical.add(keys.ofLevel(parsed));
+      canonical.add(keys.ofLevel(utils.parseLevel(mirror, 1)));
+    }
+    System.out.println();
+    System.out.println("1000 generated levels and their mirror images: " + texts.size()
+            + " different level strings, " + canonical.size() + " different canonical keys");
+  }
+
+  // prints the visited set sizes and reachable state counts of board
+  static void report(String name, BoardState board) {
+    RushHourSolver plain = new RushHourSolver(board);
+    plain.solve();
+    CanonicalSolver merged = new CanonicalSolver(board);
+    merged.solve();
+
+    long[] states = DistanceTable.reachableFrom(board);
+    BoardState copy = new BoardState(board);
+    CanonicalKey keys = new CanonicalKey();
+    HashSet<Long> canonical = new HashSet<>();
+    for (long state : states) {
+      copy.unpack(state);
+      canonical.add(keys.of(copy));
+    }
+    System.out.println(name + "\t" + plain.visited + "\t" + merged.visited + "\t" + states.length
+            + "\t" + canonical.size());
+  }
+}
@@ -0,0 +1,64 @@
+// Gives a board position a 64 bit key that ignores which vehicle is which: only what sits where
+// counts. Each vehicle is described by its orientation, length, lane and position (and whether
+// it is the target), each description is mixed into a number, and the numbers are added up with
+// one for the grid and exit, so two positions that differ only by swapping identical vehicles
+// get the same key. The key is also the same for a position and its top-to-bottom mirror image:
+// both are keyed and the smaller key is used. A mirror image keeps the exit on the mirrored row,
+// so on a board whose exit is not on the middle row it is a different level, and two positions
+// of one such board never share a key through mirroring. Keys are hashes, so two different
+// positions could share one, but with 64 bits that is vanishingly unlikely.
+class CanonicalKey {
+  /*
+  M:
+  of -- long
+  ofLevel -- long
+  keyOf -- long
+  vehicleKey -- long
+  mix -- long
+   */
+
+  // the key of board in its current position
+  long of(BoardState board) {
+    return Math.min(this.keyOf(board, false), this.keyOf(board, true));
+  }
+
+  // the key of a level as it starts, so levels that are the same up to swapping identical
+  // vehicles or mirroring can be found and dropped
+  long ofLevel(ParsedLevel level) {
+    return this.of(level.toBoardState());
+  }
+
+  // the key of board in its current position, or of its mirror image
+  long keyOf(BoardState board, boolean mirrored) {
+    int exitRow = mirrored ? board.rows - 1 - board.exitRow : board.exitRow;
+    long key = mix(((long) board.cols << 48) | ((long) board.rows << 32)
+            | ((long) board.exitCol << 16) | exitRow);
+    for (int v = 0; v < board.vehicleCount(); v++) {
+      int lane = board.lane[v];
+      int pos = board.pos[v];
+      if (mirrored && board.horizontal[v]) {
+        lane = board.rows - 1 - lane;
+      } else if (mirrored) {
+        pos = board.rows - pos - board.length[v];
+      }
+      key += this.vehicleKey(board.horizontal[v], board.length[v], v == board.target, lane, pos);
+    }
+    return key;
+  }
+
+  // the number a vehicle with the given description adds to a key
+  long vehicleKey(boolean horizontal, int length, boolean target, int lane, int pos) {
+    return mix(((horizontal ? 1L : 0L) << 63) | ((target ? 1L : 0L) << 62)
+            | ((long) length << 40) | ((long) lane << 20) | pos);
+  }
+
+  // spreads the bits of x over the whole long (the murmur3 finalizer)
+  static long mix(long x) {
+    x ^= x >>> 33;
+    x *= 0xff51afd7ed558ccdL;
+    x ^= x >>> 33;
+    x *= 0xc4ceb9fe1a85ec53L;
+    x ^= x >>> 33;
+    return x;
+  }
+}
@@ -0,0 +1,87 @@
+// A RushHourSolver whose visited set is keyed by CanonicalKey instead of by packed state, so
+// positions that only differ by swapping identical vehicles, or by mirroring the board top to
+// bottom, are searched once. Every position of a class is won if any is (the target is never
+// swapped, and a mirror image that keeps the exit where it is keeps the target on its row), so
+// the moves found are still as few as possible. The set maps each key to the state the first
+// position with that key was reached from, and the path is rebuilt from those states.
+class CanonicalSolver extends RushHourSolver {
+  CanonicalKey keys;
+
+  CanonicalSolver(BoardState board) {
+    super(board);
+    this.keys = new CanonicalKey();
+  }
+
+  CanonicalSolver(RushHour game) {
+    this(game.board);
+  }
+
+  /*
+  F:
+  board -- BoardState
+  start -- long
+  expanded -- int
+  visited -- int
+  keys -- CanonicalKey
+  M:
+  solve -- Optional<IList<Move>>
+  isSolvable -- boolean
+  pathTo -- IList<Move>
+  MoF:
+  keys.of -- long
+   */
+
+  // finds a shortest list of moves that wins the level, or None if it cannot be won
+  Optional<IList<Move>> solve() {
+    StateMap parents = new StateMap();
+    LongQueue queue = new LongQueue();
+    MoveGenerator generator = new MoveGenerator(this.board);
+    int[] moves = new int[generator.maxMoves()];
+    this.board.unpack(this.start);
+    parents.putIfAbsent(this.keys.of(this.board), this.start);
+    queue.add(this.start);
+    this.expanded = 0;
+
+    while (!queue.isEmpty()) {
+      long state = queue.poll();
+      this.board.unpack(state);
+      this.expanded++;
+      if (this.board.isWon()) {
+        this.visited = parents.size();
+        return new Some<>(this.pathTo(state, parents));
+      }
+
+      int count = generator.generate(moves);
+      for (int i = 0; i < count; i++) {
+        int v = MoveGenerator.vehicleOf(moves[i]);
+        int p = this.board.pos[v];
+        int q = MoveGenerator.positionOf(moves[i]);
+        this.board.moveTo(v, q);
+        if (parents.putIfAbsent(this.keys.of(this.board), state)) {
+          queue.add(this.board.withPosition(state, v, q));
+        }
+        this.board.moveTo(v, p);
+      }
+    }
+    this.visited = parents.size();
+    return new None<>();
+  }
+
+  // walks back from the given state to the start, building the moves that led to it
+  IList<Move> pathTo(long state, IStateMap parents) {
+    IList<Move> moves = new MT<>();
+    while (state != this.start) {
+      this.board.unpack(state);
+      long parent = parents.get(this.keys.of(this.board));
+      for (int v = 0; v < this.board.vehicleCount(); v++) {
+        int from = this.board.positionIn(parent, v);
+        int to = this.board.positionIn(state, v);
+        if (from != to) {
+          moves = new Cons<>(new Move(v, from, to), moves);
+        }
+      }
+      state = parent;
+    }
+    return moves;
+  }
+}
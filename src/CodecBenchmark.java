@@ -0,0 +1,48 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+// Compares loading levels from ASCII level strings with decoding them from LevelCodec's binary
+// format: levels per second and bytes per level. Run with
+//   java CodecBenchmark [boardSize] [levels]
+class CodecBenchmark {
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+    RushHourUtils utils = new RushHourUtils();
+    LevelCodec codec = new LevelCodec();
+    Random rng = new Random(2510);
+    String[] levels = new String[count];
+    long asciiBytes = 0;
+    long binaryBytes = 0;
+    for (int i = 0; i < count; i++) {
+      levels[i] = LevelStrings.randomLevel(rng, size, size * size / 3);
+      asciiBytes += levels[i].length();
+      binaryBytes += codec.encodedSize(utils.parseLevel(levels[i], 1));
+    }
+    ByteBuffer encoded = ByteBuffer.allocate((int) binaryBytes);
+    for (String level : levels) {
+      codec.encodeInto(utils.parseLevel(level, 1), encoded);
+    }
+
+    System.out.println("ascii\t" + asciiBytes / count + " bytes/level");
+    System.out.println("binary\t" + binaryBytes / count + " bytes/level");
+    for (int round = 0; round < 5; round++) {
+      long begin = System.nanoTime();
+      long vehicles = 0;
+      for (String level : levels) {
+        vehicles += utils.parseLevel(level, 1).endX;
+      }
+      long parseNanos = System.nanoTime() - begin;
+
+      begin = System.nanoTime();
+      encoded.rewind();
+      for (int i = 0; i < count; i++) {
+        vehicles += codec.decode(encoded, 1).endX;
+      }
+      long decodeNanos = System.nanoTime() - begin;
+      System.out.println("parse\t" + count * 1000000000L / parseNanos + " levels/sec\t"
+              + "decode\t" + count * 1000000000L / decodeNanos + " levels/sec\t(" + vehicles + ")");
+    }
+  }
+}
@@ -0,0 +1,56 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+// Measures how many boards per second a LevelCorpus streams, sequentially and in parallel, and
+// how much heap is in use afterwards. Run with
+//   java CorpusBenchmark [corpusFile]
+// Without a file, a corpus of randomly generated 6x6 levels is written to a temporary file first.
+class CorpusBenchmark {
+  public static void main(String[] args) throws IOException {
+    Path file;
+    if (args.length > 0) {
+      file = Paths.get(args[0]);
+    } else {
+      file = Files.createTempFile("corpus", ".txt");
+      file.toFile().deleteOnExit();
+      Random rng = new Random(2510);
+      try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+        for (int i = 0; i < 1000000; i++) {
+          out.write(LevelStrings.randomLevel(rng, 6, 12));
+          out.newLine();
+        }
+      }
+    }
+    System.out.println(file + ": " + Files.size(file) + " bytes");
+
+    for (int round = 0; round < 3; round++) {
+      measure(file, false);
+      measure(file, true);
+    }
+  }
+
+  // streams every board of the corpus, counting boards and vehicles
+  static void measure(Path file, boolean parallel) throws IOException {
+    long begin = System.nanoTime();
+    long boards;
+    long vehicles;
+    try (LevelCorpus corpus = new LevelCorpus(file, 1)) {
+      boards = corpus.levels(parallel).count();
+    }
+    try (LevelCorpus corpus = new LevelCorpus(file, 1)) {
+      vehicles = corpus.levels(parallel)
+              .mapToLong(level -> level.vehicles.fold((vehicle, n) -> n + 1, 0))
+              .sum();
+    }
+    long millis = Math.max(1, (System.nanoTime() - begin) / 1000000);
+    Runtime runtime = Runtime.getRuntime();
+    System.out.println((parallel ? "parallel" : "sequential") + "\t" + boards + " boards\t"
+            + vehicles + " vehicles\t" + (2 * boards * 1000 / millis) + " boards/sec\t"
+            + ((runtime.totalMemory() - runtime.freeMemory()) >> 20) + " MB heap in use");
+  }
+}
@@ -0,0 +1,215 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+// Measures how hard every level of a level pack is, on a ForkJoinPool so all cores stay busy.
+// For each level it builds a DistanceTable, which gives the fewest moves that win it, how many
+// states can be reached from its start, how many of those are won, and the average number of
+// moves from a state. Each level is handed to the pool as its own AnalyzeLevel task as soon as
+// it is read, keeping up to window levels in flight; once the window is full, the oldest level's
+// row is waited for and written before the next level is read. So rows come out in order while
+// the workers never wait for a whole batch to finish, however big the pack only window levels
+// are held at once, and each worker only holds the table of the level it is on, which is
+// refused (and reported as an error row) past maxStates states.
+// Levels that cannot be read are reported the same way. The report is CSV, or JSON (an array
+// of objects with the same fields) if json is set.
+class DifficultyAnalyzer {
+  static final String CSV_HEADER = "level,moves,states,solved_states,branching,millis,error";
+
+  int threads;
+  int maxStates;
+  // how many levels may be analyzed or waiting to be written at once
+  int window;
+
+  DifficultyAnalyzer(int threads, int maxStates, int window) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("An analyzer needs at least one thread.");
+    }
+    if (window < 1) {
+      throw new IllegalArgumentException("The window needs room for at least one level.");
+    }
+    this.threads = threads;
+    this.maxStates = maxStates;
+    this.window = window;
+  }
+
+  /*
+  F:
+  threads -- int
+  maxStates -- int
+  window -- int
+  M:
+  analyzeAll -- long
+  analyze -- LevelDifficulty
+  writeRow -- void
+   */
+
+  public static void main(String[] args) throws IOException {
+    Path levels = Paths.get(args[0]);
+    Path report = Paths.get(args[1]);
+    int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+    int maxStates = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 20;
+    DifficultyAnalyzer analyzer = new DifficultyAnalyzer(threads, maxStates, 64 * threads);
+    long begin = System.nanoTime();
+    long count;
+    try (Stream<String> lines = Files.lines(levels);
+         BufferedWriter out = Files.newBufferedWriter(report)) {
+      count = analyzer.analyzeAll(lines.filter(line -> !line.isEmpty()), out,
+              report.toString().endsWith(".json"));
+    }
+    long millis = Math.max(1, (System.nanoTime() - begin) / 1000000);
+    System.out.println(count + " levels in " + millis + " ms on " + threads + " threads ("
+            + count * 1000 / millis + " levels/sec)");
+  }
+
+  // writes a row of the report for every level of levels, numbered in the order they come in
+  // returns how many levels there were
+  long analyzeAll(Stream<String> levels, Writer out, boolean json) throws IOException {
+    ForkJoinPool pool = new ForkJoinPool(this.threads);
+    try {
+      out.write(json ? "[" : CSV_HEADER);
+      long count = 0;
+      Iterator<String> it = levels.iterator();
+      // the levels in flight, oldest first
+      ArrayDeque<AnalyzeLevel> inFlight = new ArrayDeque<>();
+      while (it.hasNext() || !inFlight.isEmpty()) {
+        if (it.hasNext() && inFlight.size() < this.window) {
+          AnalyzeLevel task = new AnalyzeLevel(this, count, it.next());
+          pool.execute(task);
+          inFlight.add(task);
+          count++;
+        } else {
+          this.writeRow(inFlight.poll().join(), out, json);
+        }
+      }
+      out.write(json ? "\n]\n" : "\n");
+      return count;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  // how hard the level with the given number and level string is
+  LevelDifficulty analyze(long index, String level) {
+    long begin = System.nanoTime();
+    try {
+      BoardState board = new RushHourUtils().parseLevel(level, 1).toBoardState();
+      board.checkNoOverlaps();
+      DistanceTable table = new DistanceTable(board, this.maxStates);
+      int moves = table.distanceOf(board.pack());
+      return new LevelDifficulty(index, moves == DistanceTable.UNSOLVABLE ? -1 : moves,
+              table.size(), table.solvedStates(), table.averageMoves(),
+              (System.nanoTime() - begin) / 1000000, null);
+    } catch (RuntimeException e) {
+      return new LevelDifficulty(index, -1, 0, 0, 0, (System.nanoTime() - begin) / 1000000,
+              e.getMessage() == null ? e.toString() : e.getMessage());
+    }
+  }
+
+  // EFFECT: writes row to out, after the rows before it
+  void writeRow(LevelDifficulty row, Writer out, boolean json) throws IOException {
+    if (json) {
+      out.write(row.index == 0 ? "\n  " : ",\n  ");
+      out.write(row.toJson());
+    } else {
+      out.write("\n");
+      out.write(row.toCsv());
+    }
+  }
+}
+
+// Analyzes one level of a pack on a DifficultyAnalyzer's pool, giving its row of the report.
+class AnalyzeLevel extends RecursiveTask<LevelDifficulty> {
+  private static final long serialVersionUID = 1L;
+
+  DifficultyAnalyzer analyzer;
+  // the number of the level in the whole pack
+  long index;
+  String level;
+
+  AnalyzeLevel(DifficultyAnalyzer analyzer, long index, String level) {
+    this.analyzer = analyzer;
+    this.index = index;
+    this.level = level;
+  }
+
+  /*
+  F:
+  analyzer -- DifficultyAnalyzer
+  index -- long
+  level -- String
+  M:
+  compute -- LevelDifficulty
+  MoF:
+  analyzer.analyze -- LevelDifficulty
+   */
+
+  protected LevelDifficulty compute() {
+    return this.analyzer.analyze(this.index, this.level);
+  }
+}
+
+// Represents how hard one level of a pack is: the fewest moves that win it (-1 if it cannot be
+// won), how many states can be reached from its start and how many of those are won, the
+// average number of moves from a reachable state, and how long it took to find all that; or,
+// if the level could not be analyzed, why not.
+class LevelDifficulty {
+  long index;
+  int moves;
+  int states;
+  int solvedStates;
+  double branching;
+  long millis;
+  // null if the level was analyzed
+  String error;
+
+  LevelDifficulty(long index, int moves, int states, int solvedStates, double branching,
+                  long millis, String error) {
+    this.index = index;
+    this.moves = moves;
+    this.states = states;
+    this.solvedStates = solvedStates;
+    this.branching = branching;
+    this.millis = millis;
+    this.error = error;
+  }
+
+  /*
+  F:
+  index -- long
+  moves, states, solvedStates -- int
+  branching -- double
+  millis -- long
+  error -- String
+  M:
+  toCsv -- String
+  toJson -- String
+   */
+
+  // this row as a line of CSV, in the order of DifficultyAnalyzer.CSV_HEADER
+  String toCsv() {
+    String error = this.error == null ? "" : "\"" + this.error.replace("\"", "\"\"") + "\"";
+    return this.index + "," + this.moves + "," + this.states + "," + this.solvedStates + ","
+            + String.format(Locale.ROOT, "%.3f", this.branching) + "," + this.millis + "," + error;
+  }
+
+  // this row as a JSON object
+  String toJson() {
+    String error = this.error == null ? "null"
+            : "\"" + this.error.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    return "{\"level\": " + this.index + ", \"moves\": " + this.moves + ", \"states\": "
+            + this.states + ", \"solved_states\": " + this.solvedStates + ", \"branching\": "
+            + String.format(Locale.ROOT, "%.3f", this.branching) + ", \"millis\": " + this.millis
+            + ", \"error\": " + error + "}";
+  }
+}
@@ -0,0 +1,252 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Represents how many moves every position of a level is from being won, so a hint is a
+// lookup rather than a search. The table holds every state reachable from the level's start
+// (the start's connected component: every move can be undone, so each of these states can also
+// reach all the others), sorted, with one byte of distance each, 9 bytes per state in all.
+//
+// It is built by retrograde analysis: the component is listed by a breadth-first search from
+// the start, then a second breadth-first search runs from every won state at once, so each
+// state is labelled with the fewest moves from it to any won state. States that cannot be won
+// are labelled UNSOLVABLE. A table is saved as
+//   'R' 'D' version  vehicles (4 bytes) count (4 bytes)
+// followed by the count states as longs and then their distances, one byte each.
+class DistanceTable {
+  static final byte VERSION = 1;
+  // the distance of a state from which no won state can be reached
+  static final int UNSOLVABLE = 255;
+
+  BoardState board;
+  // every state of the component, in increasing order
+  long[] states;
+  // the distance of each state, as an unsigned byte
+  byte[] distances;
+  MoveGenerator generator;
+  int[] moves;
+
+  DistanceTable(BoardState board) {
+    this(board, Integer.MAX_VALUE);
+  }
+
+  // a table for board, throwing an exception if more than limit states are reachable
+  DistanceTable(BoardState board, int limit) {
+    this(board, reachableFrom(board, limit));
+    this.label();
+  }
+
+  DistanceTable(RushHour game) {
+    this(game.board);
+  }
+
+  // a table of the given sorted states of board, with every distance 0 until it is filled in
+  DistanceTable(BoardState board, long[] states) {
+    this.board = new BoardState(board);
+    this.states = states;
+    this.distances = new byte[states.length];
+    this.generator = new MoveGenerator(this.board);
+    this.moves = new int[this.generator.maxMoves()];
+  }
+
+  /*
+  F:
+  board -- BoardState
+  states -- long[]
+  distances -- byte[]
+  generator -- MoveGenerator
+  moves -- int[]
+  M:
+  label -- void
+  size -- int
+  distanceOf -- int
+  solvedStates -- int
+  averageMoves -- double
+  nextMove -- Optional<Move>
+  save -- void
+  load -- DistanceTable
+  reachableFrom -- long[]
+  MoF:
+  board.unpack -- void
+  board.withPosition -- long
+  generator.generate -- int
+   */
+
+  // EFFECT: labels every state with the fewest moves from it to a won state, by a breadth-first
+  // search from all the won states at once; every move of every state must lead to a state of
+  // the table
+  void label() {
+    int[] queue = new int[this.states.length];
+    int head = 0;
+    int tail = 0;
+    Arrays.fill(this.distances, (byte) UNSOLVABLE);
+    for (int i = 0; i < this.states.length; i++) {
+      if (this.board.targetWinsAt(this.board.positionIn(this.states[i], this.board.target))) {
+        this.distances[i] = 0;
+        queue[tail] = i;
+        tail++;
+      }
+    }
+    while (head < tail) {
+      int i = queue[head];
+      head++;
+      int next = (this.distances[i] & 0xff) + 1;
+      this.board.unpack(this.states[i]);
+      int count = this.generator.generate(this.moves);
+      for (int m = 0; m < count; m++) {
+        int j = Arrays.binarySearch(this.states, this.board.withPosition(this.states[i],
+                MoveGenerator.vehicleOf(this.moves[m]), MoveGenerator.positionOf(this.moves[m])));
+        if ((this.distances[j] & 0xff) == UNSOLVABLE) {
+          // only a state that really is UNSOLVABLE moves away could not be told from one that
+          // cannot be won
+          if (next >= UNSOLVABLE) {
+            throw new IllegalStateException("The level has states more than "
+                    + (UNSOLVABLE - 1) + " moves from being won.");
+          }
+          this.distances[j] = (byte) next;
+          queue[tail] = j;
+          tail++;
+        }
+      }
+    }
+  }
+
+  // how many states the table holds
+  int size() {
+    return this.states.length;
+  }
+
+  // the fewest moves that win from state, UNSOLVABLE if it cannot be won, or -1 if state is not
+  // in the table
+  int distanceOf(long state) {
+    int i = Arrays.binarySearch(this.states, state);
+    if (i < 0) {
+      return -1;
+    }
+    return this.distances[i] & 0xff;
+  }
+
+  // how many of the states are won
+  int solvedStates() {
+    int solved = 0;
+    for (byte distance : this.distances) {
+      if (distance == 0) {
+        solved++;
+      }
+    }
+    return solved;
+  }
+
+  // how many moves a state of the table has, on average
+  double averageMoves() {
+    long moves = 0;
+    for (long state : this.states) {
+      this.board.unpack(state);
+      moves += this.generator.generate(this.moves);
+    }
+    return moves / (double) this.states.length;
+  }
+
+  // a first move of a shortest win from board's current position, or None if the position is
+  // already won, cannot be won, or is not in the table
+  Optional<Move> nextMove(BoardState board) {
+    long state = board.pack();
+    int distance = this.distanceOf(state);
+    if (distance <= 0 || distance == UNSOLVABLE) {
+      return new None<>();
+    }
+    this.board.unpack(state);
+    int count = this.generator.generate(this.moves);
+    for (int m = 0; m < count; m++) {
+      int v = MoveGenerator.vehicleOf(this.moves[m]);
+      int q = MoveGenerator.positionOf(this.moves[m]);
+      if (this.distanceOf(this.board.withPosition(state, v, q)) == distance - 1) {
+        return new Some<>(new Move(v, this.board.pos[v], q));
+      }
+    }
+    throw new IllegalStateException("No move gets closer to a win; the table is broken.");
+  }
+
+  // EFFECT: writes this table to file
+  void save(Path file) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeByte('R');
+      out.writeByte('D');
+      out.writeByte(VERSION);
+      out.writeInt(this.board.vehicleCount());
+      out.writeInt(this.states.length);
+      for (long state : this.states) {
+        out.writeLong(state);
+      }
+      out.write(this.distances);
+    }
+  }
+
+  // reads the table saved in file for board, throwing an exception if it is not a table for
+  // board's level
+  static DistanceTable load(Path file, BoardState board) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readByte() != 'R' || in.readByte() != 'D') {
+        throw new IllegalArgumentException("Not a distance table.");
+      }
+      byte version = in.readByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unknown distance table version " + version + ".");
+      }
+      int vehicles = in.readInt();
+      long[] states = new long[in.readInt()];
+      for (int i = 0; i < states.length; i++) {
+        states[i] = in.readLong();
+      }
+      DistanceTable table = new DistanceTable(board, states);
+      in.readFully(table.distances);
+      if (vehicles != board.vehicleCount() || table.distanceOf(board.pack()) < 0) {
+        throw new IllegalArgumentException("The distance table is for a different level.");
+      }
+      return table;
+    }
+  }
+
+  // every state reachable from board's current position, in increasing order
+  static long[] reachableFrom(BoardState board) {
+    return reachableFrom(board, Integer.MAX_VALUE);
+  }
+
+  // the same, throwing an exception if there are more than limit of them
+  static long[] reachableFrom(BoardState board, int limit) {
+    BoardState copy = new BoardState(board);
+    MoveGenerator generator = new MoveGenerator(copy);
+    int[] moves = new int[generator.maxMoves()];
+    StateMap seen = new StateMap();
+    LongList found = new LongList();
+    long start = copy.pack();
+    seen.putIfAbsent(start, start);
+    found.add(start);
+    for (int i = 0; i < found.size; i++) {
+      long state = found.get(i);
+      copy.unpack(state);
+      int count = generator.generate(moves);
+      for (int m = 0; m < count; m++) {
+        long next = copy.withPosition(state, MoveGenerator.vehicleOf(moves[m]),
+                MoveGenerator.positionOf(moves[m]));
+        if (seen.putIfAbsent(next, state)) {
+          if (found.size == limit) {
+            throw new IllegalStateException("The level has more than " + limit
+                    + " reachable states.");
+          }
+          found.add(next);
+        }
+      }
+    }
+    long[] states = Arrays.copyOf(found.items, found.size);
+    Arrays.sort(states);
+    return states;
+  }
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Builds DistanceTables for the ExamplesRushHour levels and for generated boards, printing for
+// each the states in the table, the time to build it, the bytes of its saved file and the time
+// to load that file, and how long nextMove takes from random states of the table. Run with
+//   java DistanceTableBenchmark [boardSize] [boards] [seed]
+class DistanceTableBenchmark {
+  public static void main(String[] args) throws IOException {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 2510;
+
+    Random rng = new Random(seed);
+    System.out.println("board\tstates\tbuild ms\tfile bytes\tload ms\tnextMove micros");
+    for (int round = 0; round < 2; round++) {
+      // the first round warms up the JIT and is not printed
+      boolean print = round == 1;
+      for (int i = 0; i < SolverBenchmark.EXAMPLE_LEVELS.length; i++) {
+        measure("example " + i, LevelStrings.boardFor(SolverBenchmark.EXAMPLE_LEVELS[i]),
+                rng, print);
+      }
+    }
+    for (int b = 0; b < count; b++) {
+      measure("generated " + size + "x" + size + " " + b, LevelStrings.boardFor(
+              LevelStrings.randomLevel(rng, size, size * size / 3)), rng, true);
+    }
+  }
+
+  // builds, saves and loads a table for board and times nextMove, printing the results if print
+  // is set
+  static void measure(String name, BoardState board, Random rng, boolean print)
+          throws IOException {
+    long begin = System.nanoTime();
+    DistanceTable table = new DistanceTable(board);
+    long buildNanos = System.nanoTime() - begin;
+
+    Path file = Files.createTempFile("distances", ".bin");
+    table.save(file);
+    long bytes = Files.size(file);
+    begin = System.nanoTime();
+    DistanceTable loaded = DistanceTable.load(file, board);
+    long loadNanos = System.nanoTime() - begin;
+    Files.delete(file);
+
+    int lookups = 100000;
+    BoardState position = new BoardState(board);
+    long[] states = new long[lookups];
+    for (int i = 0; i < lookups; i++) {
+      states[i] = loaded.states[rng.nextInt(loaded.size())];
+    }
+    int hints = 0;
+    begin = System.nanoTime();
+    for (long state : states) {
+      position.unpack(state);
+      if (loaded.nextMove(position).isSome()) {
+        hints++;
+      }
+    }
+    long lookupNanos = System.nanoTime() - begin;
+    if (print) {
+      System.out.println(name + "\t" + table.size() + "\t" + buildNanos / 1000000 + "\t" + bytes
+              + "\t" + loadNanos / 1000000 + "\t"
+              + String.format("%.2f", lookupNanos / 1000.0 / lookups) + "\t(" + hints + " hints)");
+    }
+  }
+}
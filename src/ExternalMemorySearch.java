@@ -0,0 +1,551 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Properties;
+
+// A breadth-first search over a level's packed board states that keeps its states on disk
+// rather than in memory, for levels with more reachable states than a JVM's heap can hold.
+// Every layer (the states a given number of moves from the start) is a file of sorted longs in
+// dir, so the layer files together are the visited set and give each state's distance.
+//
+// A layer is expanded by reading the previous one a state at a time and collecting the states
+// its moves reach in a buffer of runStates longs; each full buffer is sorted, stripped of
+// duplicates and written out as a run file, so memory use stays at one buffer however big the
+// layer is. The runs are then merged, and a merged state is only kept if it is in neither the
+// layer just expanded nor the one before it. Every move can be undone, so a state reached
+// from layer d is already known exactly when it is in layer d - 1, d or d + 1, and only those
+// two layers need to be read back. At most fanIn files are open at once: if a layer has more
+// runs than that, groups of fanIn runs are first merged into longer runs, as many passes over
+// the runs as it takes.
+//
+// After every layer the search writes a checkpoint file naming the layers that are complete,
+// along with the level it is for: its size, its exit and its vehicles (as the key
+// CanonicalKey.keyOf gives the board as it is, not mirrored) and its start state. A search made
+// on a dir that has a checkpoint for the same level carries on from it, throwing away any layer
+// or run that an interrupted search left half written; a checkpoint for any other level is an
+// error.
+class ExternalMemorySearch {
+  // how many files a merge opens at once, unless it is given another limit
+  static final int FAN_IN = 64;
+
+  BoardState board;
+  long start;
+  // the key CanonicalKey.keyOf gives the start, not mirrored
+  long levelKey;
+  Path dir;
+  int runStates;
+  int fanIn;
+  MoveGenerator generator;
+  int[] moves;
+  // how many states each complete layer holds; the last one is 0 once every state is found
+  LongList layers;
+  // the first layer holding a won state and one won state in it, or -1 while none is found
+  int solvedAt;
+  long won;
+
+  ExternalMemorySearch(BoardState board, Path dir, int runStates) throws IOException {
+    this(board, dir, runStates, FAN_IN);
+  }
+
+  ExternalMemorySearch(BoardState board, Path dir, int runStates, int fanIn)
+          throws IOException {
+    if (runStates < 1) {
+      throw new IllegalArgumentException("A run needs room for at least one state.");
+    }
+    if (fanIn < 2) {
+      throw new IllegalArgumentException("A merge needs to read at least two runs at once.");
+    }
+    this.board = new BoardState(board);
+    this.start = this.board.pack();
+    this.levelKey = new CanonicalKey().keyOf(this.board, false);
+    this.dir = dir;
+    this.runStates = runStates;
+    this.fanIn = fanIn;
+    this.generator = new MoveGenerator(this.board);
+    this.moves = new int[this.generator.maxMoves()];
+    this.layers = new LongList();
+    this.solvedAt = -1;
+    Files.createDirectories(dir);
+    if (Files.exists(this.checkpointFile())) {
+      this.resume();
+    } else {
+      this.writeLayer(0, new long[] {this.start}, 1);
+      this.layers.add(1);
+      if (this.board.isWon()) {
+        this.solvedAt = 0;
+        this.won = this.start;
+      }
+      this.checkpoint();
+    }
+  }
+
+  /*
+  F:
+  board -- BoardState
+  start -- long
+  levelKey -- long
+  dir -- Path
+  runStates -- int
+  fanIn -- int
+  generator -- MoveGenerator
+  moves -- int[]
+  layers -- LongList
+  solvedAt -- int
+  won -- long
+  M:
+  step -- boolean
+  explore -- long
+  solve -- Optional<IList<Move>>
+  distanceOf -- int
+  states -- long
+  isFinished -- boolean
+  expand -- int
+  merge -- long
+  mergeRuns -- int
+  contains -- boolean
+  writeRun -- void
+  writeLayer -- void
+  checkpoint -- void
+  levelProperties -- Properties
+  resume -- void
+  layerFile -- Path
+  runFile -- Path
+  checkpointFile -- Path
+  MoF:
+  board.unpack -- void
+  board.withPosition -- long
+  generator.generate -- int
+   */
+
+  // EFFECT: finds the next layer, writes it to disk and checkpoints it, unless every state has
+  // been found already
+  // returns whether the new layer holds any states
+  boolean step() throws IOException {
+    if (this.isFinished()) {
+      return false;
+    }
+    int d = this.layers.size - 1;
+    int runs = this.expand(d);
+    long count = this.merge(d, runs);
+    this.layers.add(count);
+    this.checkpoint();
+    return count > 0;
+  }
+
+  // EFFECT: finds every layer not found yet
+  // returns how many states are reachable from the start
+  long explore() throws IOException {
+    while (this.step()) {
+      // each step writes one layer
+    }
+    return this.states();
+  }
+
+  // finds a shortest list of moves that wins the level, or None if it cannot be won; only the
+  // layers up to the first won state are found
+  Optional<IList<Move>> solve() throws IOException {
+    while (this.solvedAt < 0 && this.step()) {
+      // each step writes one layer
+    }
+    if (this.solvedAt < 0) {
+      return new None<>();
+    }
+    // walk back from the won state, finding each state's predecessor in the layer before it
+    IList<Move> path = new MT<>();
+    long state = this.won;
+    for (int d = this.solvedAt; d > 0; d--) {
+      this.board.unpack(state);
+      int count = this.generator.generate(this.moves);
+      long previous = state;
+      for (int i = 0; i < count && previous == state; i++) {
+        int v = MoveGenerator.vehicleOf(this.moves[i]);
+        int q = MoveGenerator.positionOf(this.moves[i]);
+        long candidate = this.board.withPosition(state, v, q);
+        if (this.contains(d - 1, candidate)) {
+          path = new Cons<>(new Move(v, q, this.board.pos[v]), path);
+          previous = candidate;
+        }
+      }
+      state = previous;
+    }
+    return new Some<>(path);
+  }
+
+  // how many moves state is from the start, or -1 if it is in none of the layers found so far
+  int distanceOf(long state) throws IOException {
+    for (int d = 0; d < this.layers.size; d++) {
+      if (this.contains(d, state)) {
+        return d;
+      }
+    }
+    return -1;
+  }
+
+  // how many states the layers found so far hold
+  long states() {
+    long states = 0;
+    for (int d = 0; d < this.layers.size; d++) {
+      states += this.layers.get(d);
+    }
+    return states;
+  }
+
+  // has every state reachable from the start been found?
+  boolean isFinished() {
+    return this.layers.get(this.layers.size - 1) == 0;
+  }
+
+  // EFFECT: writes every state one move from a state of layer d into sorted run files
+  // returns how many run files there are
+  int expand(int d) throws IOException {
+    long[] buffer = new long[this.runStates];
+    int size = 0;
+    int runs = 0;
+    try (SortedRunReader layer = new SortedRunReader(this.layerFile(d))) {
+      while (layer.hasNext()) {
+        long state = layer.next();
+        this.board.unpack(state);
+        int count = this.generator.generate(this.moves);
+        for (int i = 0; i < count; i++) {
+          buffer[size] = this.board.withPosition(state, MoveGenerator.vehicleOf(this.moves[i]),
+                  MoveGenerator.positionOf(this.moves[i]));
+          size++;
+          if (size == buffer.length) {
+            this.writeRun(runs, buffer, size);
+            runs++;
+            size = 0;
+          }
+        }
+      }
+    }
+    if (size > 0) {
+      this.writeRun(runs, buffer, size);
+      runs++;
+    }
+    return runs;
+  }
+
+  // EFFECT: merges the run files into layer d + 1, dropping states that are in layer d or d - 1
+  // or in more than one run, and deletes the runs
+  // returns how many states layer d + 1 holds
+  long merge(int d, int runs) throws IOException {
+    // the two layers and the output take three of the files that may be open
+    while (runs > this.fanIn - 3 && runs > 1) {
+      runs = this.mergeRuns(runs, Math.max(2, this.fanIn - 3));
+    }
+    PriorityQueue<SortedRunReader> heads = new PriorityQueue<>(Math.max(1, runs),
+            new ByNextState());
+    SortedRunReader current = new SortedRunReader(this.layerFile(d));
+    SortedRunReader before = d > 0 ? new SortedRunReader(this.layerFile(d - 1)) : null;
+    Path partial = this.dir.resolve("layer.tmp");
+    long count = 0;
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+      for (int r = 0; r < runs; r++) {
+        SortedRunReader run = new SortedRunReader(this.runFile(r));
+        if (run.hasNext()) {
+          heads.add(run);
+        } else {
+          run.close();
+        }
+      }
+      boolean any = false;
+      long last = 0;
+      while (!heads.isEmpty()) {
+        SortedRunReader run = heads.poll();
+        long state = run.next();
+        if (run.hasNext()) {
+          heads.add(run);
+        } else {
+          run.close();
+        }
+        if (any && state == last) {
+          continue;
+        }
+        any = true;
+        last = state;
+        if (!current.skipTo(state) && (before == null || !before.skipTo(state))) {
+          out.writeLong(state);
+          count++;
+          if (this.solvedAt < 0
+                  && this.board.targetWinsAt(this.board.positionIn(state, this.board.target))) {
+            this.solvedAt = d + 1;
+            this.won = state;
+          }
+        }
+      }
+    } finally {
+      for (SortedRunReader run : heads) {
+        run.close();
+      }
+      current.close();
+      if (before != null) {
+        before.close();
+      }
+    }
+    Files.move(partial, this.layerFile(d + 1), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    for (int r = 0; r < runs; r++) {
+      Files.deleteIfExists(this.runFile(r));
+    }
+    return count;
+  }
+
+  // EFFECT: merges each group of width runs (the last may have fewer) into one run without
+  // duplicates, numbering the merged runs from 0 and deleting the ones they were merged from
+  // returns how many runs there are now
+  int mergeRuns(int runs, int width) throws IOException {
+    int groups = (runs + width - 1) / width;
+    Path partial = this.dir.resolve("run.tmp");
+    for (int g = 0; g < groups; g++) {
+      int end = Math.min(runs, (g + 1) * width);
+      PriorityQueue<SortedRunReader> heads = new PriorityQueue<>(width, new ByNextState());
+      try (DataOutputStream out = new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+        for (int r = g * width; r < end; r++) {
+          SortedRunReader run = new SortedRunReader(this.runFile(r));
+          if (run.hasNext()) {
+            heads.add(run);
+          } else {
+            run.close();
+          }
+        }
+        boolean any = false;
+        long last = 0;
+        while (!heads.isEmpty()) {
+          SortedRunReader run = heads.poll();
+          long state = run.next();
+          if (run.hasNext()) {
+            heads.add(run);
+          } else {
+            run.close();
+          }
+          if (!any || state != last) {
+            out.writeLong(state);
+            any = true;
+            last = state;
+          }
+        }
+      } finally {
+        for (SortedRunReader run : heads) {
+          run.close();
+        }
+      }
+      // run g itself, unless g is 0, was in an earlier group, so it is gone already
+      for (int r = g * width; r < end; r++) {
+        Files.delete(this.runFile(r));
+      }
+      Files.move(partial, this.runFile(g), StandardCopyOption.ATOMIC_MOVE);
+    }
+    return groups;
+  }
+
+  // is state in layer d? Looked up by binary search in the layer's file
+  boolean contains(int d, long state) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(this.layerFile(d).toFile(), "r")) {
+      long low = 0;
+      long high = file.length() / 8 - 1;
+      while (low <= high) {
+        long middle = (low + high) >>> 1;
+        file.seek(middle * 8);
+        long found = file.readLong();
+        if (found < state) {
+          low = middle + 1;
+        } else if (found > state) {
+          high = middle - 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  // EFFECT: sorts the first size states of buffer and writes them, without duplicates, as run r
+  void writeRun(int r, long[] buffer, int size) throws IOException {
+    Arrays.sort(buffer, 0, size);
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(this.runFile(r)), 1 << 16))) {
+      for (int i = 0; i < size; i++) {
+        if (i == 0 || buffer[i] != buffer[i - 1]) {
+          out.writeLong(buffer[i]);
+        }
+      }
+    }
+  }
+
+  // EFFECT: writes the first size states of sorted as layer d
+  void writeLayer(int d, long[] sorted, int size) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(this.layerFile(d))))) {
+      for (int i = 0; i < size; i++) {
+        out.writeLong(sorted[i]);
+      }
+    }
+  }
+
+  // EFFECT: records in the checkpoint file which layers are complete, replacing the old
+  // checkpoint in one step so a crash leaves either the old or the new one
+  void checkpoint() throws IOException {
+    Properties checkpoint = this.levelProperties();
+    StringBuilder sizes = new StringBuilder();
+    for (int d = 0; d < this.layers.size; d++) {
+      sizes.append(d == 0 ? "" : ",").append(this.layers.get(d));
+    }
+    checkpoint.setProperty("layers", sizes.toString());
+    checkpoint.setProperty("solvedAt", Integer.toString(this.solvedAt));
+    checkpoint.setProperty("won", Long.toString(this.won));
+    Path partial = this.dir.resolve("checkpoint.tmp");
+    try (OutputStream out = Files.newOutputStream(partial)) {
+      checkpoint.store(out, "ExternalMemorySearch");
+    }
+    Files.move(partial, this.checkpointFile(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // the properties a checkpoint records to tell which level it is for
+  Properties levelProperties() {
+    Properties level = new Properties();
+    level.setProperty("cols", Integer.toString(this.board.cols));
+    level.setProperty("rows", Integer.toString(this.board.rows));
+    level.setProperty("exitCol", Integer.toString(this.board.exitCol));
+    level.setProperty("exitRow", Integer.toString(this.board.exitRow));
+    level.setProperty("vehicles", Integer.toString(this.board.vehicleCount()));
+    level.setProperty("level", Long.toString(this.levelKey));
+    level.setProperty("start", Long.toString(this.start));
+    return level;
+  }
+
+  // EFFECT: reads the checkpoint file back, and deletes any layer or run written after it
+  void resume() throws IOException {
+    Properties checkpoint = new Properties();
+    try (InputStream in = Files.newInputStream(this.checkpointFile())) {
+      checkpoint.load(in);
+    }
+    Properties level = this.levelProperties();
+    for (String name : level.stringPropertyNames()) {
+      if (!level.getProperty(name).equals(checkpoint.getProperty(name))) {
+        throw new IllegalStateException("The checkpoint in " + this.dir
+                + " is for a different level.");
+      }
+    }
+    for (String size : checkpoint.getProperty("layers").split(",")) {
+      this.layers.add(Long.parseLong(size));
+    }
+    this.solvedAt = Integer.parseInt(checkpoint.getProperty("solvedAt"));
+    this.won = Long.parseLong(checkpoint.getProperty("won"));
+    Files.deleteIfExists(this.layerFile(this.layers.size));
+    Files.deleteIfExists(this.dir.resolve("layer.tmp"));
+    Files.deleteIfExists(this.dir.resolve("run.tmp"));
+    // a merge pass leaves gaps in the run numbers, so every run file is looked for
+    try (DirectoryStream<Path> runs = Files.newDirectoryStream(this.dir, "run-*.bin")) {
+      for (Path run : runs) {
+        Files.delete(run);
+      }
+    }
+  }
+
+  // the file holding layer d
+  Path layerFile(int d) {
+    return this.dir.resolve(String.format("layer-%05d.bin", d));
+  }
+
+  // the file holding run r of the layer being found
+  Path runFile(int r) {
+    return this.dir.resolve(String.format("run-%05d.bin", r));
+  }
+
+  // the file recording which layers are complete
+  Path checkpointFile() {
+    return this.dir.resolve("checkpoint.properties");
+  }
+}
+
+// Reads a file of sorted longs (a run or a layer of an ExternalMemorySearch) one at a time,
+// always knowing the next one, so runs can be merged and layers searched in a single pass.
+class SortedRunReader implements Closeable {
+  DataInputStream in;
+  boolean hasNext;
+  long next;
+
+  SortedRunReader(Path file) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    this.advance();
+  }
+
+  /*
+  F:
+  in -- DataInputStream
+  hasNext -- boolean
+  next -- long
+  M:
+  hasNext -- boolean
+  peek -- long
+  next -- long
+  skipTo -- boolean
+  advance -- void
+  close -- void
+   */
+
+  // is there another long to read?
+  boolean hasNext() {
+    return this.hasNext;
+  }
+
+  // the next long, without reading past it
+  long peek() {
+    return this.next;
+  }
+
+  // EFFECT: reads past the next long
+  // returns that long
+  long next() throws IOException {
+    long value = this.next;
+    this.advance();
+    return value;
+  }
+
+  // EFFECT: reads past every long below value
+  // returns whether value itself is next
+  boolean skipTo(long value) throws IOException {
+    while (this.hasNext && this.next < value) {
+      this.advance();
+    }
+    return this.hasNext && this.next == value;
+  }
+
+  // EFFECT: reads the next long, if there is one
+  void advance() throws IOException {
+    try {
+      this.next = this.in.readLong();
+      this.hasNext = true;
+    } catch (EOFException e) {
+      this.hasNext = false;
+    }
+  }
+
+  public void close() throws IOException {
+    this.in.close();
+  }
+}
+
+// Orders SortedRunReaders by the long each will read next, so the merge reads the smallest.
+class ByNextState implements Comparator<SortedRunReader> {
+  public int compare(SortedRunReader first, SortedRunReader second) {
+    return Long.compare(first.peek(), second.peek());
+  }
+}
@@ -0,0 +1,87 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Finds every reachable state of generated boards with an ExternalMemorySearch, printing for
+// each board the number of layers and states, the time taken, the most disk its files took
+// between layers and the most heap in use, next to the time and heap of listing the same states
+// in memory (DistanceTable.reachableFrom) for the boards small enough for that. Run with
+//   java ExternalSearchBenchmark dir [boardSize] [boards] [runStates] [inMemoryLimit] [seed]
+class ExternalSearchBenchmark {
+  public static void main(String[] args) throws IOException {
+    Path dir = Path.of(args.length > 0 ? args[0] : "search");
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    int boards = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+    int runStates = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 20;
+    long inMemoryLimit = args.length > 4 ? Long.parseLong(args[4]) : 1000000;
+    long seed = args.length > 5 ? Long.parseLong(args[5]) : 2510;
+
+    System.out.println("search\tlayers\tstates\tmillis\tdisk MB\theap MB");
+    Random rng = new Random(seed);
+    for (int b = 0; b < boards; b++) {
+      BoardState board = LevelStrings.boardFor(
+              LevelStrings.randomLevel(rng, size, size * size / 3));
+      if (!board.fitsInLong()) {
+        b--;
+        continue;
+      }
+      Path boardDir = dir.resolve("board-" + b);
+      resetPeakHeap();
+      long begin = System.nanoTime();
+      ExternalMemorySearch search = new ExternalMemorySearch(board, boardDir, runStates);
+      long disk = 0;
+      while (search.step()) {
+        disk = Math.max(disk, sizeOf(boardDir));
+      }
+      long millis = (System.nanoTime() - begin) / 1000000;
+      System.out.println("external\t" + search.layers.size + "\t" + search.states() + "\t"
+              + millis + "\t" + disk / (1 << 20) + "\t" + peakHeap() / (1 << 20));
+
+      if (search.states() <= inMemoryLimit) {
+        resetPeakHeap();
+        begin = System.nanoTime();
+        long[] states = DistanceTable.reachableFrom(board);
+        millis = (System.nanoTime() - begin) / 1000000;
+        System.out.println("in memory\t\t" + states.length + "\t" + millis + "\t0\t"
+                + peakHeap() / (1 << 20));
+      }
+      for (File file : boardDir.toFile().listFiles()) {
+        Files.delete(file.toPath());
+      }
+      Files.delete(boardDir);
+    }
+  }
+
+  // bytes taken by the files in dir
+  static long sizeOf(Path dir) {
+    long bytes = 0;
+    for (File file : dir.toFile().listFiles()) {
+      bytes += file.length();
+    }
+    return bytes;
+  }
+
+  // EFFECT: collects garbage and starts counting the most heap in use afresh
+  static void resetPeakHeap() {
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      pool.resetPeakUsage();
+    }
+  }
+
+  // the most bytes of heap in use since resetPeakHeap, added up over the heap's pools
+  static long peakHeap() {
+    long bytes = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        bytes += pool.getPeakUsage().getUsed();
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+// Compares how many states the informed solvers expand against plain breadth-first search, on
+// the ExamplesRushHour levels and on randomly generated boards. Run with
+//   java HeuristicBenchmark [boardSize] [boards] [seed]
+class HeuristicBenchmark {
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 2510;
+
+    ArrayList<BoardState> boards = new ArrayList<>();
+    for (String level : SolverBenchmark.EXAMPLE_LEVELS) {
+      boards.add(LevelStrings.boardFor(level));
+    }
+    Random rng = new Random(seed);
+    while (boards.size() < SolverBenchmark.EXAMPLE_LEVELS.length + count) {
+      BoardState board = LevelStrings.boardFor(
+              LevelStrings.randomLevel(rng, size, size * size / 3));
+      if (board.fitsInLong()) {
+        boards.add(board);
+      }
+    }
+
+    System.out.println("board\tmoves\tbfs\tastar-exit\tastar-blocking\tidastar-blocking"
+            + "\t(states expanded; microseconds)");
+    for (int i = 0; i < boards.size(); i++) {
+      BoardState board = boards.get(i);
+      System.out.println(i
+              + "\t" + measure(new RushHourSolver(board), true)
+              + "\t" + measure(new RushHourSolver(board), false)
+              + "\t" + measure(new AStarSolver(board, new ExitDistance()), false)
+              + "\t" + measure(new AStarSolver(board, new BlockingVehicles()), false)
+              + "\t" + measure(new IDAStarSolver(board, new BlockingVehicles(), 10000000, 18),
+              false));
+    }
+  }
+
+  // solves with the given solver, returning the number of moves in the solution (or "none") if
+  // moves is true, and otherwise the states expanded and the time taken
+  static String measure(RushHourSolver solver, boolean moves) {
+    long begin = System.nanoTime();
+    Optional<IList<Move>> solution;
+    try {
+      solution = solver.solve();
+    } catch (IllegalStateException e) {
+      return "gave up";
+    }
+    long micros = (System.nanoTime() - begin) / 1000;
+    if (moves) {
+      return solution.isSome()
+              ? Integer.toString(solution.unwrap().fold((move, n) -> n + 1, 0))
+              : "none";
+    }
+    return solver.expanded + "; " + micros;
+  }
+}
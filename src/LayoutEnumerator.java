@@ -0,0 +1,622 @@
+import java.awt.Color;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Lists every position of every vehicle layout on a size x size board with the exit where the
+// examples have it (row 3 of the right wall), splits each layout's positions into clusters that
+// can reach each other, and records the hardest position of every cluster that can be won (of
+// the positions a level string can hold).
+//
+// A layout says which vehicles are on each line of the board: for each row and each column, the
+// lengths, from left to right or top to bottom, of the cars and trucks sliding along it. Moves
+// never change a layout, so each layout's positions are a closed set of clusters and can be
+// handled on their own. Layouts with any other vehicle on the target car's row are left out: a
+// car or truck in front of the target car keeps it from the exit for good, and one behind it
+// keeps it off columns 1 and 2, where a level string has to have it, so none of those layouts
+// has a position that both can be won and can be written as a level. Listing layouts one row or
+// column sequence at a time means no two vehicles of the same length on the same line are ever
+// told apart, so no position is listed twice.
+//
+// Positions are bitboards: one bit per open cell, column by column, for the cells the
+// horizontal vehicles cover, from which each column's free cells are one shift and mask. A
+// unit of work is one choice of every row's vehicles; for each of its placements of those
+// vehicles, only the column vehicles that fit around it are tried, so layouts that cannot be
+// placed at all are never visited. A layout's positions become packed states of a BoardState,
+// a DistanceTable labels them all with their distance from a win, and a breadth-first search
+// over the moves splits them into clusters. Only one layout is held in memory per thread.
+//
+// Units are grouped into chunks of chunkUnits, which the threads take in turn. A finished
+// chunk is written to its own file in dir, under a temporary name that is moved into place
+// once it is complete, so a job that is stopped or crashes is carried on by running it again
+// on the same dir: finished chunks are skipped and half-written ones are redone. A chunk file
+// has one line per recorded cluster,
+//   layout,states,moves,level
+// where layout is the index of each row's and then each column's vehicle sequence (the target
+// row as x), and level is the hardest position of the cluster that a level string can hold
+// (the target car at columns 1 and 2, not already won), written by LevelStrings.levelOf, with
+// moves the fewest moves that win it. It ends with a line of totals,
+//   # layouts,positions,clusters,unsolvable clusters,skipped layouts
+// Only clusters with such a position needing at least minMoves moves are written, but every
+// cluster is counted. From 7 x 7 up, a layout can have more vehicles than a packed state holds
+// (see BoardState.fitsInLong); such layouts are skipped, and only counted in the last total.
+class LayoutEnumerator {
+  static final int TARGET_ROW = 3;
+
+  int size;
+  Path dir;
+  int chunkUnits;
+  int minMoves;
+  int lineMask;
+  // every sequence of vehicle lengths that fits on a line
+  ArrayList<int[]> sequences;
+  // for each sequence, the positions of its vehicles in each of its placements on a line
+  int[][][] placements;
+  // for each set of free cells on a line and each sequence, the placements that fit in them
+  int[][][] fits;
+  int units;
+
+  LayoutEnumerator(int size, Path dir, int chunkUnits, int minMoves) throws IOException {
+    if (size < TARGET_ROW || size > 8) {
+      throw new IllegalArgumentException("Layouts can only be listed for boards of 3 to 8 cells"
+              + " across.");
+    }
+    if (chunkUnits < 1) {
+      throw new IllegalArgumentException("A chunk needs at least one unit of work.");
+    }
+    this.size = size;
+    this.dir = dir;
+    this.chunkUnits = chunkUnits;
+    this.minMoves = minMoves;
+    this.lineMask = (1 << size) - 1;
+    this.sequences = new ArrayList<>();
+    this.addSequences(new int[0], 0);
+
+    int count = this.sequences.size();
+    this.placements = new int[count][][];
+    int[][] masks = new int[count][];
+    for (int s = 0; s < count; s++) {
+      ArrayList<int[]> found = new ArrayList<>();
+      this.place(this.sequences.get(s), 0, 1, new int[this.sequences.get(s).length], found);
+      this.placements[s] = found.toArray(new int[0][]);
+      masks[s] = new int[found.size()];
+      for (int p = 0; p < found.size(); p++) {
+        masks[s][p] = this.maskOf(this.sequences.get(s), found.get(p));
+      }
+    }
+    this.fits = new int[1 << size][count][];
+    for (int free = 0; free < 1 << size; free++) {
+      for (int s = 0; s < count; s++) {
+        int[] fitting = new int[masks[s].length];
+        int n = 0;
+        for (int p = 0; p < masks[s].length; p++) {
+          if ((masks[s][p] & ~free) == 0) {
+            fitting[n] = p;
+            n++;
+          }
+        }
+        this.fits[free][s] = Arrays.copyOf(fitting, n);
+      }
+    }
+    this.units = 1;
+    for (int r = 1; r < size; r++) {
+      this.units *= count;
+    }
+
+    Files.createDirectories(dir);
+    Path job = dir.resolve("job.properties");
+    Properties settings = new Properties();
+    settings.setProperty("size", Integer.toString(size));
+    settings.setProperty("chunkUnits", Integer.toString(chunkUnits));
+    settings.setProperty("minMoves", Integer.toString(minMoves));
+    if (Files.exists(job)) {
+      Properties saved = new Properties();
+      try (Reader in = Files.newBufferedReader(job)) {
+        saved.load(in);
+      }
+      if (!saved.equals(settings)) {
+        throw new IllegalArgumentException("The enumeration in " + dir
+                + " was started with other settings.");
+      }
+    } else {
+      try (Writer out = Files.newBufferedWriter(job)) {
+        settings.store(out, "layout enumeration");
+      }
+    }
+  }
+
+  /*
+  F:
+  size, chunkUnits, minMoves, lineMask, units -- int
+  dir -- Path
+  sequences -- ArrayList<int[]>
+  placements, fits -- int[][][]
+  M:
+  addSequences -- void
+  place -- void
+  maskOf -- int
+  chunks -- int
+  chunkFile -- Path
+  enumerate -- int
+  enumerateChunk -- void
+  enumerateUnit -- void
+  placeRows -- void
+  placeColumns -- void
+  enumerateLayout -- void
+  transpose -- long
+  addStates -- void
+  layoutName -- String
+  summary -- EnumerationSummary
+   */
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Path dir = Paths.get(args[0]);
+    int threads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+    int size = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+    int minMoves = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+    int chunkUnits = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+    LayoutEnumerator enumerator = new LayoutEnumerator(size, dir, chunkUnits, minMoves);
+    long begin = System.nanoTime();
+    int done = enumerator.enumerate(threads, Integer.MAX_VALUE);
+    long millis = Math.max(1, (System.nanoTime() - begin) / 1000000);
+    System.out.println(done + " chunks in " + millis + " ms on " + threads + " threads");
+    System.out.println(enumerator.summary());
+  }
+
+  // EFFECT: adds every sequence of car and truck lengths that starts with prefix and fits on a
+  // line to sequences
+  void addSequences(int[] prefix, int used) {
+    this.sequences.add(prefix);
+    for (int length = 2; length <= 3; length++) {
+      if (used + length <= this.size) {
+        int[] longer = Arrays.copyOf(prefix, prefix.length + 1);
+        longer[prefix.length] = length;
+        this.addSequences(longer, used + length);
+      }
+    }
+  }
+
+  // EFFECT: adds every placement of the vehicles of sequence from the k-th on, with the k-th at
+  // position from or after it, to found
+  void place(int[] sequence, int k, int from, int[] positions, ArrayList<int[]> found) {
+    if (k == sequence.length) {
+      found.add(positions.clone());
+      return;
+    }
+    for (int p = from; p + sequence[k] - 1 <= this.size; p++) {
+      positions[k] = p;
+      this.place(sequence, k + 1, p + sequence[k], positions, found);
+    }
+  }
+
+  // the cells of a line covered by the vehicles of sequence at the given positions, as bits
+  // from the first cell of the line up
+  int maskOf(int[] sequence, int[] positions) {
+    int mask = 0;
+    for (int k = 0; k < sequence.length; k++) {
+      mask |= ((1 << sequence[k]) - 1) << (positions[k] - 1);
+    }
+    return mask;
+  }
+
+  // how many chunks the job has
+  int chunks() {
+    return (this.units + this.chunkUnits - 1) / this.chunkUnits;
+  }
+
+  Path chunkFile(int chunk) {
+    return this.dir.resolve(String.format("chunk-%05d.csv", chunk));
+  }
+
+  // EFFECT: works through the chunks not done yet on the given number of threads, stopping
+  // once every chunk is done or maxChunks more chunks have been done
+  // returns how many chunks were done
+  int enumerate(int threads, int maxChunks) throws IOException, InterruptedException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("An enumeration needs at least one thread.");
+    }
+    try (Stream<Path> files = Files.list(this.dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (file.getFileName().toString().endsWith(".tmp")) {
+          Files.delete(file);
+        }
+      }
+    }
+    AtomicInteger next = new AtomicInteger(0);
+    AtomicInteger started = new AtomicInteger(0);
+    // the first thing a worker threw, passed on once every worker is done
+    Throwable[] failure = new Throwable[1];
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread(() -> {
+        for (int chunk = next.getAndIncrement(); chunk < this.chunks();
+             chunk = next.getAndIncrement()) {
+          if (Files.exists(this.chunkFile(chunk))) {
+            continue;
+          }
+          if (started.getAndIncrement() >= maxChunks) {
+            return;
+          }
+          try {
+            this.enumerateChunk(chunk);
+          } catch (IOException | RuntimeException | Error e) {
+            synchronized (failure) {
+              if (failure[0] == null) {
+                failure[0] = e;
+              }
+            }
+            return;
+          }
+        }
+      }, "enumerator-" + i);
+      workers[i].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    if (failure[0] instanceof IOException) {
+      throw (IOException) failure[0];
+    } else if (failure[0] instanceof RuntimeException) {
+      throw (RuntimeException) failure[0];
+    } else if (failure[0] != null) {
+      throw (Error) failure[0];
+    }
+    return Math.min(started.get(), maxChunks);
+  }
+
+  // EFFECT: enumerates the units of the given chunk and writes its file
+  void enumerateChunk(int chunk) throws IOException {
+    Path partial = this.dir.resolve(String.format("chunk-%05d.tmp", chunk));
+    long[] totals = new long[5];
+    try (BufferedWriter out = Files.newBufferedWriter(partial)) {
+      int last = Math.min(this.units, (chunk + 1) * this.chunkUnits);
+      for (int unit = chunk * this.chunkUnits; unit < last; unit++) {
+        this.enumerateUnit(unit, out, totals);
+      }
+      out.write("# " + totals[0] + "," + totals[1] + "," + totals[2] + "," + totals[3] + ","
+              + totals[4] + "\n");
+    }
+    Files.move(partial, this.chunkFile(chunk), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // EFFECT: enumerates every layout whose rows hold the vehicle sequences numbered by unit,
+  // writing its clusters to out and adding to totals
+  void enumerateUnit(int unit, Writer out, long[] totals) throws IOException {
+    int count = this.sequences.size();
+    // rowSequences[r] is the sequence on row r + 1, or -1 for the target's row
+    int[] rowSequences = new int[this.size];
+    for (int r = 0; r < this.size; r++) {
+      if (r == TARGET_ROW - 1) {
+        rowSequences[r] = -1;
+      } else {
+        rowSequences[r] = unit % count;
+        unit /= count;
+      }
+    }
+    ArrayList<int[]> rows = new ArrayList<>();
+    LongList occupied = new LongList();
+    this.placeRows(rowSequences, 0, new int[this.size], 0, rows, occupied);
+    int[] all = new int[rows.size()];
+    for (int h = 0; h < all.length; h++) {
+      all[h] = h;
+    }
+    this.placeColumns(rowSequences, new int[this.size], 0, all, rows, occupied, out, totals);
+  }
+
+  // EFFECT: adds every placement of the row vehicles from row r + 1 on to rows (the placement
+  // number of each row's sequence, or the target's position on its row) and the cells they
+  // cover, as a bitboard of bit c * size + r for column c + 1 and row r + 1, to occupied
+  void placeRows(int[] rowSequences, int r, int[] choice, long cells, ArrayList<int[]> rows,
+                 LongList occupied) {
+    if (r == this.size) {
+      rows.add(choice.clone());
+      occupied.add(cells);
+      return;
+    }
+    if (rowSequences[r] < 0) {
+      // the target car may also stand with its front on the exit
+      for (int p = 1; p <= this.size; p++) {
+        choice[r] = p;
+        int mask = (p == this.size ? 1 : 3) << (p - 1);
+        this.placeRows(rowSequences, r + 1, choice, cells | this.transpose(mask, r), rows,
+                occupied);
+      }
+      return;
+    }
+    int[] sequence = this.sequences.get(rowSequences[r]);
+    for (int p = 0; p < this.placements[rowSequences[r]].length; p++) {
+      choice[r] = p;
+      int mask = this.maskOf(sequence, this.placements[rowSequences[r]][p]);
+      this.placeRows(rowSequences, r + 1, choice, cells | this.transpose(mask, r), rows,
+              occupied);
+    }
+  }
+
+  // the cells of row r + 1 given by mask, as bitboard bits
+  long transpose(int mask, int r) {
+    long cells = 0;
+    for (int c = 0; c < this.size; c++) {
+      if ((mask >>> c & 1) != 0) {
+        cells |= 1L << (c * this.size + r);
+      }
+    }
+    return cells;
+  }
+
+  // EFFECT: tries every sequence on column c + 1 and after it, keeping only the row placements
+  // (by their number in rows) that leave room for the columns chosen so far, and enumerates
+  // each layout that still has one
+  void placeColumns(int[] rowSequences, int[] columnSequences, int c, int[] candidates,
+                    ArrayList<int[]> rows, LongList occupied, Writer out, long[] totals)
+          throws IOException {
+    if (c == this.size) {
+      this.enumerateLayout(rowSequences, columnSequences, candidates, rows, occupied, out,
+              totals);
+      return;
+    }
+    int[] kept = new int[candidates.length];
+    for (int s = 0; s < this.sequences.size(); s++) {
+      int n = 0;
+      for (int h : candidates) {
+        int free = (int) ~(occupied.get(h) >>> (c * this.size)) & this.lineMask;
+        if (this.fits[free][s].length > 0) {
+          kept[n] = h;
+          n++;
+        }
+      }
+      if (n > 0) {
+        columnSequences[c] = s;
+        this.placeColumns(rowSequences, columnSequences, c + 1, Arrays.copyOf(kept, n), rows,
+                occupied, out, totals);
+      }
+    }
+  }
+
+  // EFFECT: lists every position of the layout, splits them into clusters, writes the clusters
+  // to out and adds to totals
+  void enumerateLayout(int[] rowSequences, int[] columnSequences, int[] candidates,
+                       ArrayList<int[]> rows, LongList occupied, Writer out, long[] totals)
+          throws IOException {
+    // the vehicles are the target, then each row's vehicles, then each column's
+    ArrayList<Vehicle> vehicles = new ArrayList<>();
+    Vehicle target = null;
+    int[] first = rows.get(candidates[0]);
+    int[] firstColumns = new int[this.size];
+    for (int c = 0; c < this.size; c++) {
+      int free = (int) ~(occupied.get(candidates[0]) >>> (c * this.size)) & this.lineMask;
+      firstColumns[c] = this.fits[free][columnSequences[c]][0];
+    }
+    for (int r = 0; r < this.size; r++) {
+      if (rowSequences[r] < 0) {
+        target = new Vehicle(first[r], r + 1, first[r] + 1, r + 1, Color.RED, 20);
+      } else {
+        int[] sequence = this.sequences.get(rowSequences[r]);
+        int[] positions = this.placements[rowSequences[r]][first[r]];
+        for (int k = 0; k < sequence.length; k++) {
+          vehicles.add(new Vehicle(positions[k], r + 1, positions[k] + sequence[k] - 1, r + 1,
+                  Color.BLUE, 20));
+        }
+      }
+    }
+    for (int c = 0; c < this.size; c++) {
+      int[] sequence = this.sequences.get(columnSequences[c]);
+      int[] positions = this.placements[columnSequences[c]][firstColumns[c]];
+      for (int k = 0; k < sequence.length; k++) {
+        vehicles.add(new Vehicle(c + 1, positions[k], c + 1, positions[k] + sequence[k] - 1,
+                Color.GREEN, 20));
+      }
+    }
+    IList<Vehicle> list = new MT<>();
+    for (int v = vehicles.size() - 1; v >= 0; v--) {
+      list = new Cons<>(vehicles.get(v), list);
+    }
+    list = new Cons<>(target, list);
+    BoardState board = new BoardState(list,
+            new TileGrid(this.size + 2, this.size + 2, 20, this.size + 1, TARGET_ROW), target);
+    if (!board.fitsInLong()) {
+      // its positions cannot be packed into longs, so it is counted but not searched
+      totals[4]++;
+      return;
+    }
+
+    // every position: each fitting row placement with each fitting placement of every column
+    LongList found = new LongList();
+    for (int h : candidates) {
+      int[] choice = rows.get(h);
+      long state = 0;
+      int v = 1;
+      for (int r = 0; r < this.size; r++) {
+        if (rowSequences[r] < 0) {
+          state |= choice[r];
+        } else {
+          for (int p : this.placements[rowSequences[r]][choice[r]]) {
+            state |= (long) p << (v * board.bits);
+            v++;
+          }
+        }
+      }
+      this.addStates(columnSequences, 0, v, state, occupied.get(h), board.bits, found);
+    }
+    long[] states = Arrays.copyOf(found.items, found.size);
+    Arrays.sort(states);
+    DistanceTable table = new DistanceTable(board, states);
+    table.label();
+
+    // the clusters, by a breadth-first search from each position not yet in one
+    boolean[] reached = new boolean[states.length];
+    int[] queue = new int[states.length];
+    String layout = this.layoutName(rowSequences, columnSequences);
+    for (int start = 0; start < states.length; start++) {
+      if (reached[start]) {
+        continue;
+      }
+      reached[start] = true;
+      queue[0] = start;
+      int head = 0;
+      int tail = 1;
+      // the hardest position a level string can hold: the target car at columns 1 and 2, and
+      // not won already
+      int hardest = -1;
+      while (head < tail) {
+        int i = queue[head];
+        head++;
+        int distance = table.distances[i] & 0xff;
+        if (distance != DistanceTable.UNSOLVABLE && distance > 0
+                && table.board.positionIn(states[i], table.board.target) == 1
+                && (hardest < 0 || distance > (table.distances[hardest] & 0xff))) {
+          hardest = i;
+        }
+        table.board.unpack(states[i]);
+        int count = table.generator.generate(table.moves);
+        for (int m = 0; m < count; m++) {
+          int move = table.moves[m];
+          int j = Arrays.binarySearch(states, table.board.withPosition(states[i],
+                  MoveGenerator.vehicleOf(move), MoveGenerator.positionOf(move)));
+          if (!reached[j]) {
+            reached[j] = true;
+            queue[tail] = j;
+            tail++;
+          }
+        }
+      }
+      // the positions of a cluster can all be won, or none of them can
+      if ((table.distances[start] & 0xff) == DistanceTable.UNSOLVABLE) {
+        totals[3]++;
+      } else if (hardest >= 0 && (table.distances[hardest] & 0xff) >= this.minMoves) {
+        int moves = table.distances[hardest] & 0xff;
+        table.board.unpack(states[hardest]);
+        out.write(layout + "," + tail + "," + moves + "," + LevelStrings.levelOf(table.board)
+                + "\n");
+      }
+      totals[2]++;
+    }
+    totals[0]++;
+    totals[1] += states.length;
+  }
+
+  // EFFECT: adds to found every state made by adding a fitting placement of each column's
+  // vehicles, from column c + 1 on (whose first vehicle is vehicle v), to state
+  void addStates(int[] columnSequences, int c, int v, long state, long cells, int bits,
+                 LongList found) {
+    if (c == this.size) {
+      found.add(state);
+      return;
+    }
+    int free = (int) ~(cells >>> (c * this.size)) & this.lineMask;
+    for (int p : this.fits[free][columnSequences[c]]) {
+      long placed = state;
+      int w = v;
+      for (int q : this.placements[columnSequences[c]][p]) {
+        placed |= (long) q << (w * bits);
+        w++;
+      }
+      this.addStates(columnSequences, c + 1, w, placed, cells, bits, found);
+    }
+  }
+
+  // the name of a layout in chunk files
+  String layoutName(int[] rowSequences, int[] columnSequences) {
+    StringBuilder name = new StringBuilder();
+    for (int s : rowSequences) {
+      name.append(s < 0 ? "x" : Integer.toString(s, 36));
+    }
+    name.append('/');
+    for (int s : columnSequences) {
+      name.append(Integer.toString(s, 36));
+    }
+    return name.toString();
+  }
+
+  // the totals of the chunks done so far, and their hardest cluster
+  EnumerationSummary summary() throws IOException {
+    EnumerationSummary summary = new EnumerationSummary(this.chunks());
+    for (int chunk = 0; chunk < this.chunks(); chunk++) {
+      if (Files.exists(this.chunkFile(chunk))) {
+        try (Stream<String> lines = Files.lines(this.chunkFile(chunk))) {
+          lines.forEach(summary::add);
+        }
+        summary.chunksDone++;
+      }
+    }
+    return summary;
+  }
+}
+
+// Represents the totals of a LayoutEnumerator's finished chunks: how many layouts, positions,
+// clusters and clusters that cannot be won they had, how many layouts were skipped for having
+// too many vehicles to pack, how many clusters they recorded, and the hardest of those.
+class EnumerationSummary {
+  int chunks;
+  int chunksDone;
+  long layouts;
+  long positions;
+  long clusters;
+  long unsolvable;
+  long skipped;
+  long recorded;
+  int hardestMoves;
+  // null until a cluster is recorded
+  String hardestLevel;
+
+  EnumerationSummary(int chunks) {
+    this.chunks = chunks;
+    this.hardestMoves = -1;
+  }
+
+  /*
+  F:
+  chunks, chunksDone, hardestMoves -- int
+  layouts, positions, clusters, unsolvable, skipped, recorded -- long
+  hardestLevel -- String
+  M:
+  add -- void
+  isFinished -- boolean
+  toString -- String
+   */
+
+  // EFFECT: counts one line of a chunk file
+  void add(String line) {
+    if (line.startsWith("# ")) {
+      String[] totals = line.substring(2).split(",");
+      this.layouts += Long.parseLong(totals[0]);
+      this.positions += Long.parseLong(totals[1]);
+      this.clusters += Long.parseLong(totals[2]);
+      this.unsolvable += Long.parseLong(totals[3]);
+      this.skipped += Long.parseLong(totals[4]);
+    } else {
+      String[] fields = line.split(",", 4);
+      int moves = Integer.parseInt(fields[2]);
+      if (moves > this.hardestMoves) {
+        this.hardestMoves = moves;
+        this.hardestLevel = fields[3];
+      }
+      this.recorded++;
+    }
+  }
+
+  // have all the chunks been done?
+  boolean isFinished() {
+    return this.chunksDone == this.chunks;
+  }
+
+  public String toString() {
+    return this.chunksDone + " of " + this.chunks + " chunks done: " + this.layouts
+            + " layouts, " + this.positions + " positions, " + this.clusters + " clusters ("
+            + this.unsolvable + " cannot be won), " + this.skipped
+            + " layouts skipped for having too many vehicles, " + this.recorded
+            + " recorded; hardest " + this.hardestMoves + " moves: " + this.hardestLevel
+            + "\n(layouts with other vehicles on the target car's row are left out)";
+  }
+}
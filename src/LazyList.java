@@ -0,0 +1,271 @@
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Represents a lazy view of a list: map, filter, flatMap and concat only record what to do, and
+// nothing is computed until the view is folded. Folding runs every recorded step in the same
+// pass over the underlying IList, each item going through all of them before the next one is
+// read, so no list is built between the steps.
+interface ILazyList<T> {
+  // a view of this one with func applied to every item
+  <U> ILazyList<U> map(Function<T, U> func);
+
+  // a view of this one with only the items for which func returns true
+  ILazyList<T> filter(Function<T, Boolean> func);
+
+  // a view of this one with every item replaced by the items of the list func makes from it
+  <U> ILazyList<U> flatMap(Function<T, IList<U>> func);
+
+  // a view of the items of this one followed by the items of that one
+  ILazyList<T> concat(ILazyList<T> that);
+
+  // Applies the function from left to right to each item in the view and combines them.
+  <U> U fold(BiFunction<T, U, U> func, U value);
+}
+
+// Holds the steps every lazy view can record, so each kind of view only has to fold.
+abstract class ALazyList<T> implements ILazyList<T> {
+  public <U> ILazyList<U> map(Function<T, U> func) {
+    return new MappedList<>(this, func);
+  }
+
+  public ILazyList<T> filter(Function<T, Boolean> func) {
+    return new FilteredList<>(this, func);
+  }
+
+  public <U> ILazyList<U> flatMap(Function<T, IList<U>> func) {
+    return new FlatMappedList<>(this, func);
+  }
+
+  public ILazyList<T> concat(ILazyList<T> that) {
+    return new ConcatList<>(this, that);
+  }
+}
+
+// Represents the items of an IList as a lazy view.
+class LazyList<T> extends ALazyList<T> {
+  IList<T> source;
+
+  LazyList(IList<T> source) {
+    this.source = source;
+  }
+
+  /*
+  F:
+  source -- IList<T>
+  M:
+  map -- ILazyList<U>
+  filter -- ILazyList<T>
+  flatMap -- ILazyList<U>
+  concat -- ILazyList<T>
+  fold -- U
+  MoF:
+  source.fold -- U
+   */
+
+  public <U> U fold(BiFunction<T, U, U> func, U value) {
+    return this.source.fold(func, value);
+  }
+}
+
+// Represents a lazy view with a function applied to every item of another.
+class MappedList<S, T> extends ALazyList<T> {
+  ILazyList<S> from;
+  Function<S, T> func;
+
+  MappedList(ILazyList<S> from, Function<S, T> func) {
+    this.from = from;
+    this.func = func;
+  }
+
+  /*
+  F:
+  from -- ILazyList<S>
+  func -- Function<S, T>
+  M:
+  map -- ILazyList<U>
+  filter -- ILazyList<T>
+  flatMap -- ILazyList<U>
+  concat -- ILazyList<T>
+  fold -- U
+  MoF:
+  from.fold -- U
+  func.apply -- T
+   */
+
+  public <U> U fold(BiFunction<T, U, U> func, U value) {
+    return this.from.fold(new MapThen<>(this.func, func), value);
+  }
+}
+
+// Represents a lazy view of the items of another for which a function returns true.
+class FilteredList<T> extends ALazyList<T> {
+  ILazyList<T> from;
+  Function<T, Boolean> func;
+
+  FilteredList(ILazyList<T> from, Function<T, Boolean> func) {
+    this.from = from;
+    this.func = func;
+  }
+
+  /*
+  F:
+  from -- ILazyList<T>
+  func -- Function<T, Boolean>
+  M:
+  map -- ILazyList<U>
+  filter -- ILazyList<T>
+  flatMap -- ILazyList<U>
+  concat -- ILazyList<T>
+  fold -- U
+  MoF:
+  from.fold -- U
+  func.apply -- Boolean
+   */
+
+  public <U> U fold(BiFunction<T, U, U> func, U value) {
+    return this.from.fold(new FilterThen<>(this.func, func), value);
+  }
+}
+
+// Represents a lazy view of the lists a function makes from every item of another, one after
+// the other.
+class FlatMappedList<S, T> extends ALazyList<T> {
+  ILazyList<S> from;
+  Function<S, IList<T>> func;
+
+  FlatMappedList(ILazyList<S> from, Function<S, IList<T>> func) {
+    this.from = from;
+    this.func = func;
+  }
+
+  /*
+  F:
+  from -- ILazyList<S>
+  func -- Function<S, IList<T>>
+  M:
+  map -- ILazyList<U>
+  filter -- ILazyList<T>
+  flatMap -- ILazyList<U>
+  concat -- ILazyList<T>
+  fold -- U
+  MoF:
+  from.fold -- U
+  func.apply -- IList<T>
+   */
+
+  public <U> U fold(BiFunction<T, U, U> func, U value) {
+    return this.from.fold(new FlatMapThen<>(this.func, func), value);
+  }
+}
+
+// Represents a lazy view of the items of one view followed by the items of another.
+class ConcatList<T> extends ALazyList<T> {
+  ILazyList<T> first;
+  ILazyList<T> second;
+
+  ConcatList(ILazyList<T> first, ILazyList<T> second) {
+    this.first = first;
+    this.second = second;
+  }
+
+  /*
+  F:
+  first -- ILazyList<T>
+  second -- ILazyList<T>
+  M:
+  map -- ILazyList<U>
+  filter -- ILazyList<T>
+  flatMap -- ILazyList<U>
+  concat -- ILazyList<T>
+  fold -- U
+  MoF:
+  first.fold -- U
+  second.fold -- U
+   */
+
+  public <U> U fold(BiFunction<T, U, U> func, U value) {
+    return this.second.fold(func, this.first.fold(func, value));
+  }
+}
+
+// Maps an item, then hands it straight on to the next step of a fold.
+class MapThen<S, T, U> implements BiFunction<S, U, U> {
+  Function<S, T> func;
+  BiFunction<T, U, U> next;
+
+  MapThen(Function<S, T> func, BiFunction<T, U, U> next) {
+    this.func = func;
+    this.next = next;
+  }
+
+  /*
+  F:
+  func -- Function<S, T>
+  next -- BiFunction<T, U, U>
+  M:
+  apply -- U
+  MoF:
+  func.apply -- T
+  next.apply -- U
+   */
+
+  public U apply(S item, U value) {
+    return this.next.apply(this.func.apply(item), value);
+  }
+}
+
+// Hands an item on to the next step of a fold only if a function returns true for it.
+class FilterThen<T, U> implements BiFunction<T, U, U> {
+  Function<T, Boolean> func;
+  BiFunction<T, U, U> next;
+
+  FilterThen(Function<T, Boolean> func, BiFunction<T, U, U> next) {
+    this.func = func;
+    this.next = next;
+  }
+
+  /*
+  F:
+  func -- Function<T, Boolean>
+  next -- BiFunction<T, U, U>
+  M:
+  apply -- U
+  MoF:
+  func.apply -- Boolean
+  next.apply -- U
+   */
+
+  public U apply(T item, U value) {
+    if (this.func.apply(item)) {
+      return this.next.apply(item, value);
+    } else {
+      return value;
+    }
+  }
+}
+
+// Folds the next step of a fold over the list a function makes from an item.
+class FlatMapThen<S, T, U> implements BiFunction<S, U, U> {
+  Function<S, IList<T>> func;
+  BiFunction<T, U, U> next;
+
+  FlatMapThen(Function<S, IList<T>> func, BiFunction<T, U, U> next) {
+    this.func = func;
+    this.next = next;
+  }
+
+  /*
+  F:
+  func -- Function<S, IList<T>>
+  next -- BiFunction<T, U, U>
+  M:
+  apply -- U
+  MoF:
+  func.apply -- IList<T>
+  next.apply -- U
+   */
+
+  public U apply(S item, U value) {
+    return this.func.apply(item).fold(this.next, value);
+  }
+}
@@ -0,0 +1,114 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+// Encodes levels in a compact binary format and decodes them back into ParsedLevels, as an
+// alternative to the ASCII level strings. Version 1 lays a level out as:
+//   'R' 'H' version  cols rows exitCol exitRow  count (2 bytes)
+// followed by 3 bytes per vehicle: the column and row of its start, and the level letter that
+// starts it ("T", "t", "C" or "c"), so the vehicle and its color are rebuilt exactly as
+// RushHourUtils.parseLevel builds them. Every coordinate takes one unsigned byte. Vehicles are
+// written last to first, so decoding can build the IList<Vehicle> front to back with no copying.
+class LevelCodec {
+  static final byte VERSION = 1;
+  static final int HEADER_SIZE = 9;
+
+  RushHourUtils utils;
+
+  LevelCodec() {
+    this.utils = new RushHourUtils();
+  }
+
+  /*
+  F:
+  utils -- RushHourUtils
+  M:
+  encodedSize -- int
+  encode -- byte[]
+  encodeInto -- void
+  decode -- ParsedLevel
+  letterFor -- char
+  checkByte -- int
+   */
+
+  // the number of bytes level takes up once encoded
+  int encodedSize(ParsedLevel level) {
+    return HEADER_SIZE + 3 * level.vehicles.fold(new CollectVehicles(), new ArrayList<>()).size();
+  }
+
+  // encodes level into a new array
+  byte[] encode(ParsedLevel level) {
+    ByteBuffer out = ByteBuffer.allocate(this.encodedSize(level));
+    this.encodeInto(level, out);
+    return out.array();
+  }
+
+  // EFFECT: writes level at the position of out and moves the position past it
+  void encodeInto(ParsedLevel level, ByteBuffer out) {
+    ArrayList<Vehicle> vehicles = level.vehicles.fold(new CollectVehicles(), new ArrayList<>());
+    if (vehicles.size() > 0xffff) {
+      throw new IllegalArgumentException("Too many vehicles to encode.");
+    }
+    out.put((byte) 'R');
+    out.put((byte) 'H');
+    out.put(VERSION);
+    out.put((byte) this.checkByte(level.tileGrid.cols));
+    out.put((byte) this.checkByte(level.tileGrid.rows));
+    out.put((byte) this.checkByte(level.endX));
+    out.put((byte) this.checkByte(level.endY));
+    out.putShort((short) vehicles.size());
+    for (int i = vehicles.size() - 1; i >= 0; i--) {
+      Vehicle vehicle = vehicles.get(i);
+      out.put((byte) this.checkByte(Math.min(vehicle.x1, vehicle.x2)));
+      out.put((byte) this.checkByte(Math.min(vehicle.y1, vehicle.y2)));
+      out.put((byte) this.letterFor(vehicle));
+    }
+  }
+
+  // decodes the level at the start of bytes
+  ParsedLevel decode(byte[] bytes, int tileSize) {
+    return this.decode(ByteBuffer.wrap(bytes), tileSize);
+  }
+
+  // decodes the level at the position of in
+  // EFFECT: moves the position of in past the level
+  ParsedLevel decode(ByteBuffer in, int tileSize) {
+    if (in.get() != 'R' || in.get() != 'H') {
+      throw new IllegalArgumentException("Not an encoded level.");
+    }
+    byte version = in.get();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unknown level format version " + version + ".");
+    }
+    int cols = in.get() & 0xff;
+    int rows = in.get() & 0xff;
+    int endX = in.get() & 0xff;
+    int endY = in.get() & 0xff;
+    int count = in.getShort() & 0xffff;
+
+    IList<Vehicle> vehicles = new MT<>();
+    for (int i = 0; i < count; i++) {
+      int c = in.get() & 0xff;
+      int r = in.get() & 0xff;
+      char letter = (char) in.get();
+      if (!this.utils.isVehicle(letter)) {
+        throw new IllegalArgumentException("Unknown vehicle " + letter + ".");
+      }
+      vehicles = new Cons<>(this.utils.vehicleAt(letter, c, r, tileSize), vehicles);
+    }
+    return new ParsedLevel(vehicles, new TileGrid(cols, rows, tileSize, endX, endY), endX, endY);
+  }
+
+  // the level letter that starts vehicle
+  char letterFor(Vehicle vehicle) {
+    return LevelStrings.letterFor(vehicle.width() > vehicle.height(),
+            Math.max(vehicle.width(), vehicle.height()));
+  }
+
+  // returns value, throwing an exception if it does not fit in an unsigned byte
+  int checkByte(int value) {
+    if (value < 0 || value > 0xff) {
+      throw new IllegalArgumentException("Level is too big to encode: " + value + ".");
+    }
+    return value;
+  }
+}
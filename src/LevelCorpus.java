@@ -0,0 +1,226 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Represents a file of levels, one level string (as RushHour(String, RushHourUtils, int) takes
+// it) per line. The file is memory-mapped rather than read, in segments that end on a line
+// break, and levels are parsed straight out of the mapped bytes as they are streamed, so the
+// file is never held as Strings and the heap only holds the levels being worked on.
+class LevelCorpus implements Closeable {
+  // the most bytes mapped in one segment
+  static final int SEGMENT_SIZE = 1 << 30;
+
+  FileChannel channel;
+  ArrayList<MappedByteBuffer> segments;
+  int tileSize;
+
+  LevelCorpus(Path file, int tileSize) throws IOException {
+    this(file, tileSize, SEGMENT_SIZE);
+  }
+
+  LevelCorpus(Path file, int tileSize, int segmentSize) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.segments = new ArrayList<>();
+    this.tileSize = tileSize;
+
+    long size = this.channel.size();
+    long start = 0;
+    while (start < size) {
+      long length = Math.min(segmentSize, size - start);
+      MappedByteBuffer window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+      int end = (int) length;
+      if (start + length < size) {
+        // cut the segment after its last line break, so no level is split between segments
+        while (end > 0 && window.get(end - 1) != '\n') {
+          end--;
+        }
+        if (end == 0) {
+          throw new IOException("A level at byte " + start + " is longer than a segment.");
+        }
+        window.limit(end);
+      }
+      this.segments.add(window);
+      start += end;
+    }
+  }
+
+  /*
+  F:
+  channel -- FileChannel
+  segments -- ArrayList<MappedByteBuffer>
+  tileSize -- int
+  M:
+  levels -- Stream<ParsedLevel>
+  iterator -- Iterator<ParsedLevel>
+  close -- void
+  concat -- Stream<ParsedLevel>
+   */
+
+  // streams every level of the file, in order; a parallel stream splits the file between threads
+  Stream<ParsedLevel> levels(boolean parallel) {
+    if (this.segments.isEmpty()) {
+      return Stream.empty();
+    }
+    return this.concat(0, this.segments.size(), parallel);
+  }
+
+  // iterates over every level of the file, in order
+  Iterator<ParsedLevel> iterator() {
+    return this.levels(false).iterator();
+  }
+
+  // joins the streams of segments from (inclusive) to to (exclusive), halving the range each
+  // time so a parallel stream can split it evenly
+  Stream<ParsedLevel> concat(int from, int to, boolean parallel) {
+    if (to - from == 1) {
+      MappedByteBuffer segment = this.segments.get(from);
+      return StreamSupport.stream(
+              new LevelSpliterator(segment, 0, segment.limit(), this.tileSize), parallel);
+    }
+    int middle = (from + to) >>> 1;
+    return Stream.concat(this.concat(from, middle, parallel), this.concat(middle, to, parallel));
+  }
+
+  // EFFECT: closes the file; levels already parsed stay usable
+  public void close() throws IOException {
+    this.channel.close();
+  }
+}
+
+// Streams the levels in a range of bytes, one per line, skipping blank lines. Splitting hands
+// off the first half of the remaining lines to a new spliterator.
+class LevelSpliterator implements Spliterator<ParsedLevel> {
+  // ranges smaller than this are not worth splitting
+  static final int MIN_SPLIT = 1 << 16;
+
+  ByteBuffer bytes;
+  int pos;
+  int end;
+  int tileSize;
+  ByteCharSequence line;
+  RushHourUtils utils;
+
+  LevelSpliterator(ByteBuffer bytes, int pos, int end, int tileSize) {
+    this.bytes = bytes;
+    this.pos = pos;
+    this.end = end;
+    this.tileSize = tileSize;
+    this.line = new ByteCharSequence(bytes);
+    this.utils = new RushHourUtils();
+  }
+
+  /*
+  F:
+  bytes -- ByteBuffer
+  pos -- int
+  end -- int
+  tileSize -- int
+  line -- ByteCharSequence
+  utils -- RushHourUtils
+  M:
+  tryAdvance -- boolean
+  trySplit -- Spliterator<ParsedLevel>
+  estimateSize -- long
+  characteristics -- int
+   */
+
+  // parses the next level and gives it to action, returning false if there are none left
+  public boolean tryAdvance(Consumer<? super ParsedLevel> action) {
+    while (this.pos < this.end) {
+      int start = this.pos;
+      int stop = start;
+      while (stop < this.end && this.bytes.get(stop) != '\n') {
+        stop++;
+      }
+      this.pos = stop + 1;
+      if (stop > start && this.bytes.get(stop - 1) == '\r') {
+        stop--;
+      }
+      if (stop > start) {
+        this.line.reset(start, stop - start);
+        action.accept(this.utils.parseLevel(this.line, this.tileSize));
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // hands off the lines before the line break nearest the middle of the remaining bytes
+  public Spliterator<ParsedLevel> trySplit() {
+    if (this.end - this.pos < MIN_SPLIT) {
+      return null;
+    }
+    int middle = this.pos + (this.end - this.pos) / 2;
+    while (middle < this.end && this.bytes.get(middle - 1) != '\n') {
+      middle++;
+    }
+    if (middle >= this.end) {
+      return null;
+    }
+    LevelSpliterator prefix = new LevelSpliterator(this.bytes, this.pos, middle, this.tileSize);
+    this.pos = middle;
+    return prefix;
+  }
+
+  // the number of bytes left, which is more than the number of levels left
+  public long estimateSize() {
+    return this.end - this.pos;
+  }
+
+  public int characteristics() {
+    return Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+  }
+}
+
+// Represents a window of ASCII bytes in a ByteBuffer as a CharSequence, so a level can be parsed
+// without copying it into a String. The window can be moved to reuse the same object.
+class ByteCharSequence implements CharSequence {
+  ByteBuffer bytes;
+  int offset;
+  int length;
+
+  ByteCharSequence(ByteBuffer bytes) {
+    this.bytes = bytes;
+  }
+
+  // EFFECT: moves this window to the given bytes
+  void reset(int offset, int length) {
+    this.offset = offset;
+    this.length = length;
+  }
+
+  public int length() {
+    return this.length;
+  }
+
+  public char charAt(int index) {
+    if (index < 0 || index >= this.length) {
+      throw new IndexOutOfBoundsException("No character at " + index + ".");
+    }
+    return (char) (this.bytes.get(this.offset + index) & 0xff);
+  }
+
+  public CharSequence subSequence(int start, int end) {
+    ByteCharSequence sub = new ByteCharSequence(this.bytes);
+    sub.reset(this.offset + start, end - start);
+    return sub;
+  }
+
+  public String toString() {
+    StringBuilder text = new StringBuilder(this.length);
+    for (int i = 0; i < this.length; i++) {
+      text.append(this.charAt(i));
+    }
+    return text.toString();
+  }
+}
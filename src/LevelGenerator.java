@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+// Generates hard levels. Each try drops random vehicles onto an empty size x size board (with
+// the target car in its usual place), builds the DistanceTable of the start's component, which
+// labels every position with the fewest moves that win it by a breadth-first search back from
+// the won positions, and takes the position that needs the most moves. Level strings always
+// have the target car at columns 1 and 2 of row 3, so only positions with the target there can
+// be written out, and the hardest of those is the try's candidate. Candidates that need at
+// least minMoves moves are kept, once per CanonicalKey, since many tries land in the same
+// component.
+//
+// Tries run on the given number of threads until a time budget or a number of tries per
+// thread runs out. Each thread draws from its own random stream, split in turn from one
+// SplittableRandom seeded by the caller, so no random generator is shared between threads, and
+// keeps its own levels; they are merged in thread order once every thread is done. So a run
+// that stops at its tries limit, rather than its time budget, gives the same levels every
+// time. The report gives the kept levels, hardest first, and how many tries' candidates needed
+// each number of moves.
+class LevelGenerator {
+  int size;
+  int vehicles;
+  int threads;
+  int minMoves;
+  int maxStates;
+
+  LevelGenerator(int size, int vehicles, int threads, int minMoves, int maxStates) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("A generator needs at least one thread.");
+    }
+    this.size = size;
+    this.vehicles = vehicles;
+    this.threads = threads;
+    this.minMoves = minMoves;
+    this.maxStates = maxStates;
+  }
+
+  /*
+  F:
+  size -- int
+  vehicles -- int
+  threads -- int
+  minMoves -- int
+  maxStates -- int
+  M:
+  generate -- GeneratorReport
+  tryOne -- Optional<GeneratedLevel>
+   */
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Path output = Paths.get(args[0]);
+    long millis = args.length > 1 ? Long.parseLong(args[1]) : 10000;
+    int minMoves = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int threads = args.length > 3 ? Integer.parseInt(args[3])
+            : Runtime.getRuntime().availableProcessors();
+    int size = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+    long seed = args.length > 5 ? Long.parseLong(args[5]) : 2510;
+    LevelGenerator generator = new LevelGenerator(size, size * size / 3, threads, minMoves,
+            1 << 20);
+    GeneratorReport report = generator.generate(millis, Long.MAX_VALUE, seed);
+    ArrayList<String> lines = new ArrayList<>();
+    for (GeneratedLevel level : report.levels) {
+      lines.add(level.level);
+    }
+    Files.write(output, lines);
+    System.out.println(report);
+  }
+
+  // runs tries on every thread until millis have passed or each thread has made tries tries
+  GeneratorReport generate(long millis, long tries, long seed) throws InterruptedException {
+    long begin = System.nanoTime();
+    long deadline = begin + millis * 1000000;
+    SplittableRandom root = new SplittableRandom(seed);
+    // the levels each thread keeps, and their keys, in the order it found them
+    ArrayList<ArrayList<GeneratedLevel>> found = new ArrayList<>();
+    ArrayList<ArrayList<Long>> foundKeys = new ArrayList<>();
+    long[][] histograms = new long[this.threads][DistanceTable.UNSOLVABLE];
+    long[] tried = new long[this.threads];
+
+    Thread[] workers = new Thread[this.threads];
+    for (int i = 0; i < this.threads; i++) {
+      int worker = i;
+      Random rng = new Random(root.split().nextLong());
+      ArrayList<GeneratedLevel> levels = new ArrayList<>();
+      ArrayList<Long> levelKeys = new ArrayList<>();
+      found.add(levels);
+      foundKeys.add(levelKeys);
+      workers[i] = new Thread(() -> {
+        CanonicalKey canonical = new CanonicalKey();
+        HashSet<Long> seen = new HashSet<>();
+        while (tried[worker] < tries && System.nanoTime() < deadline) {
+          tried[worker]++;
+          Optional<GeneratedLevel> candidate = this.tryOne(rng);
+          if (candidate.isSome()) {
+            GeneratedLevel level = candidate.unwrap();
+            histograms[worker][level.moves]++;
+            if (level.moves >= this.minMoves) {
+              long key = canonical.ofLevel(new RushHourUtils().parseLevel(level.level, 1));
+              if (seen.add(key)) {
+                levels.add(level);
+                levelKeys.add(key);
+              }
+            }
+          }
+        }
+      }, "generator-" + i);
+      workers[i].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    // merged in thread order, so when two threads find levels with the same key, the one kept
+    // does not depend on which thread got there first
+    ArrayList<GeneratedLevel> kept = new ArrayList<>();
+    HashSet<Long> keys = new HashSet<>();
+    for (int i = 0; i < this.threads; i++) {
+      for (int j = 0; j < found.get(i).size(); j++) {
+        if (keys.add(foundKeys.get(i).get(j))) {
+          kept.add(found.get(i).get(j));
+        }
+      }
+    }
+    long[] histogram = new long[DistanceTable.UNSOLVABLE];
+    long total = 0;
+    for (int i = 0; i < this.threads; i++) {
+      total += tried[i];
+      for (int m = 0; m < histogram.length; m++) {
+        histogram[m] += histograms[i][m];
+      }
+    }
+    kept.sort((a, b) -> a.moves != b.moves ? b.moves - a.moves : a.level.compareTo(b.level));
+    return new GeneratorReport(kept, histogram, total, (System.nanoTime() - begin) / 1000000,
+            this.threads);
+  }
+
+  // the hardest level in the component of a random start, or None if no position of the
+  // component with the target car in its usual place can be won, or it has too many states
+  Optional<GeneratedLevel> tryOne(Random rng) {
+    BoardState board = LevelStrings.boardFor(
+            LevelStrings.randomLevel(rng, this.size, this.vehicles));
+    if (!board.fitsInLong()) {
+      return new None<>();
+    }
+    DistanceTable table;
+    try {
+      table = new DistanceTable(board, this.maxStates);
+    } catch (IllegalStateException e) {
+      return new None<>();
+    }
+    int hardest = -1;
+    int moves = 0;
+    for (int i = 0; i < table.size(); i++) {
+      int distance = table.distances[i] & 0xff;
+      if (distance != DistanceTable.UNSOLVABLE && distance > moves
+              && board.positionIn(table.states[i], board.target) == 1) {
+        hardest = i;
+        moves = distance;
+      }
+    }
+    if (hardest < 0) {
+      return new None<>();
+    }
+    board.unpack(table.states[hardest]);
+    return new Some<>(new GeneratedLevel(LevelStrings.levelOf(board), moves, table.size()));
+  }
+}
+
+// Represents a level made by a LevelGenerator: its level string, the fewest moves that win it,
+// and how many states its component has.
+class GeneratedLevel {
+  String level;
+  int moves;
+  int states;
+
+  GeneratedLevel(String level, int moves, int states) {
+    this.level = level;
+    this.moves = moves;
+    this.states = states;
+  }
+
+  /*
+  F:
+  level -- String
+  moves -- int
+  states -- int
+   */
+}
+
+// Represents how a run of a LevelGenerator went: the levels it kept, hardest first, how many
+// tries' candidates needed each number of moves, and how fast it went.
+class GeneratorReport {
+  ArrayList<GeneratedLevel> levels;
+  long[] histogram;
+  long tried;
+  long millis;
+  int threads;
+
+  GeneratorReport(ArrayList<GeneratedLevel> levels, long[] histogram, long tried, long millis,
+                  int threads) {
+    this.levels = levels;
+    this.histogram = histogram;
+    this.tried = tried;
+    this.millis = millis;
+    this.threads = threads;
+  }
+
+  /*
+  F:
+  levels -- ArrayList<GeneratedLevel>
+  histogram -- long[]
+  tried -- long
+  millis -- long
+  threads -- int
+  M:
+  triesPerSecond -- double
+  toString -- String
+   */
+
+  // how many tries were made per second
+  double triesPerSecond() {
+    return this.tried * 1000.0 / Math.max(1, this.millis);
+  }
+
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append(this.tried).append(" tries in ").append(this.millis).append(" ms on ")
+            .append(this.threads).append(" threads (")
+            .append(String.format("%.1f", this.triesPerSecond())).append(" tries/sec), ")
+            .append(this.levels.size()).append(" levels kept (")
+            .append(String.format("%.2f", this.levels.size() * 1000.0 / Math.max(1, this.millis)))
+            .append(" levels/sec)\nmoves\ttries");
+    for (int m = 0; m < this.histogram.length; m++) {
+      if (this.histogram[m] > 0) {
+        text.append("\n").append(m).append("\t").append(this.histogram[m]);
+      }
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+// Reads and writes level strings for the tools that make levels rather than load them: the
+// generators, the enumerator, the benchmarks and the tests. Every level it writes starts from the
+// same empty grid (a '+' in each corner, '-' along the top and bottom, '|' down the sides and an
+// 'X' at the exit), and every vehicle is written as the letter LevelCodec reads back, on its top
+// left cell, so each written level parses back to the same vehicles in the same places.
+class LevelStrings {
+  /*
+  M:
+  boardFor -- BoardState
+  randomLevel -- String
+  levelOf -- String
+  mirrorLevel -- String
+  emptyCells -- char[][]
+  letterFor -- char
+  join -- String
+   */
+
+  // parses a level the same way RushHour(String, RushHourUtils, int) does
+  static BoardState boardFor(String level) {
+    return new RushHourUtils().parseLevel(level, 1).toBoardState();
+  }
+
+  // builds a level with size x size open cells, the target car in its usual place (column 1,
+  // row 3) and up to the given number of other cars and trucks dropped at random free spots
+  static String randomLevel(Random rng, int size, int vehicles) {
+    char[][] cells = emptyCells(size + 2, size + 2, size + 1, 3);
+    boolean[][] taken = new boolean[size + 2][size + 2];
+    cells[3][1] = letterFor(true, 2);
+    taken[3][1] = true;
+    taken[3][2] = true;
+
+    for (int tries = 0; tries < vehicles * 4 && vehicles > 0; tries++) {
+      boolean horizontal = rng.nextBoolean();
+      int length = rng.nextInt(3) == 0 ? 3 : 2;
+      int col = 1 + rng.nextInt(horizontal ? size - length + 1 : size);
+      int row = 1 + rng.nextInt(horizontal ? size : size - length + 1);
+      if (horizontal && row == 3) {
+        continue;
+      }
+      boolean free = true;
+      for (int i = 0; i < length; i++) {
+        free = free && !taken[horizontal ? row : row + i][horizontal ? col + i : col];
+      }
+      if (free) {
+        for (int i = 0; i < length; i++) {
+          taken[horizontal ? row : row + i][horizontal ? col + i : col] = true;
+        }
+        cells[row][col] = letterFor(horizontal, length);
+        vehicles--;
+      }
+    }
+    return join(cells);
+  }
+
+  // the level string of board in its current position
+  static String levelOf(BoardState board) {
+    char[][] cells = emptyCells(board.cols, board.rows, board.exitCol, board.exitRow);
+    for (int v = 0; v < board.vehicleCount(); v++) {
+      int col = board.horizontal[v] ? board.pos[v] : board.lane[v];
+      int row = board.horizontal[v] ? board.lane[v] : board.pos[v];
+      cells[row][col] = letterFor(board.horizontal[v], board.length[v]);
+    }
+    return join(cells);
+  }
+
+  // the level string of the top-to-bottom mirror image of level
+  static String mirrorLevel(ParsedLevel level) {
+    TileGrid grid = level.tileGrid;
+    char[][] cells = emptyCells(grid.cols, grid.rows, level.endX, grid.rows - 1 - level.endY);
+    ArrayList<Vehicle> vehicles = level.vehicles.fold(new CollectVehicles(), new ArrayList<>());
+    for (Vehicle vehicle : vehicles) {
+      // the letter goes on the top left cell, which for the mirror image was the bottom left one
+      int bottom = Math.max(vehicle.y1, vehicle.y2);
+      cells[grid.rows - 1 - bottom][Math.min(vehicle.x1, vehicle.x2)] =
+              letterFor(vehicle.width() > vehicle.height(),
+                      Math.max(vehicle.width(), vehicle.height()));
+    }
+    return join(cells);
+  }
+
+  // the cells of a level with no vehicles, given as rows of columns
+  static char[][] emptyCells(int cols, int rows, int exitCol, int exitRow) {
+    char[][] cells = new char[rows][cols];
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < cols; c++) {
+        boolean edgeRow = r == 0 || r == rows - 1;
+        boolean edgeCol = c == 0 || c == cols - 1;
+        cells[r][c] = edgeRow && edgeCol ? '+' : edgeRow ? '-' : edgeCol ? '|' : ' ';
+      }
+    }
+    cells[exitRow][exitCol] = 'X';
+    return cells;
+  }
+
+  // the level letter that starts a vehicle of the given orientation and length
+  static char letterFor(boolean horizontal, int length) {
+    if (length == 3) {
+      return horizontal ? 't' : 'T';
+    } else if (length == 2) {
+      return horizontal ? 'c' : 'C';
+    } else {
+      throw new IllegalArgumentException("Only cars and trucks can be encoded.");
+    }
+  }
+
+  // the level string made of cells, row after row
+  static String join(char[][] cells) {
+    StringBuilder level = new StringBuilder();
+    for (char[] row : cells) {
+      level.append(row);
+    }
+    return level.toString();
+  }
+}
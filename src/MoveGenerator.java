@@ -0,0 +1,98 @@
+// Lists every legal move of a BoardState in its current position. For each vehicle it walks
+// out from the vehicle along its lane, both ways, until it meets a wall, another vehicle or the
+// edge, giving the range of positions the vehicle can slide to; every position in that range
+// but its current one is a move. Moves are ints (see encode), written into an array the caller
+// hands in, and the ranges are kept in arrays made once, so listing moves allocates nothing.
+// The generator follows its board: move the board and the next call lists the new moves.
+class MoveGenerator {
+  BoardState board;
+  // the lowest and highest position each vehicle could slide to, as of the last listing
+  int[] low;
+  int[] high;
+
+  MoveGenerator(BoardState board) {
+    this.board = board;
+    this.low = new int[board.vehicleCount()];
+    this.high = new int[board.vehicleCount()];
+  }
+
+  /*
+  F:
+  board -- BoardState
+  low -- int[]
+  high -- int[]
+  M:
+  maxMoves -- int
+  findRange -- void
+  generate -- int
+  encode -- int
+  vehicleOf -- int
+  positionOf -- int
+  MoF:
+  board.canEnter -- boolean
+  board.cellOf -- int
+   */
+
+  // the most moves any position of the board can have, so an array this long always has room
+  int maxMoves() {
+    int most = 0;
+    for (int v = 0; v < this.board.vehicleCount(); v++) {
+      int last = this.board.horizontal[v] ? this.board.cols : this.board.rows;
+      most += last - this.board.length[v];
+    }
+    return Math.max(most, 0);
+  }
+
+  // EFFECT: sets low[v] and high[v] to the range of positions vehicle v can slide to
+  void findRange(int v) {
+    BoardState b = this.board;
+    int p = b.pos[v];
+    int q = p;
+    while (q > 0 && b.canEnter(v, b.cellOf(v, q - 1, 0))) {
+      q--;
+    }
+    this.low[v] = q;
+    int last = (b.horizontal[v] ? b.cols : b.rows) - b.length[v];
+    q = p;
+    while (q < last && b.canEnter(v, b.cellOf(v, q + 1, b.length[v] - 1))) {
+      q++;
+    }
+    this.high[v] = q;
+  }
+
+  // writes every legal move of the board into moves, returning how many there are; for each
+  // vehicle in turn, the moves backwards come first (nearest first), then the moves forwards
+  // (nearest first)
+  // EFFECT: updates low and high for every vehicle
+  int generate(int[] moves) {
+    int count = 0;
+    for (int v = 0; v < this.board.vehicleCount(); v++) {
+      this.findRange(v);
+      int p = this.board.pos[v];
+      for (int q = p - 1; q >= this.low[v]; q--) {
+        moves[count] = encode(v, q);
+        count++;
+      }
+      for (int q = p + 1; q <= this.high[v]; q++) {
+        moves[count] = encode(v, q);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  // the move that slides vehicle v to position p
+  static int encode(int v, int p) {
+    return (v << 16) | p;
+  }
+
+  // the vehicle a move slides
+  static int vehicleOf(int move) {
+    return move >>> 16;
+  }
+
+  // the position a move slides its vehicle to
+  static int positionOf(int move) {
+    return move & 0xffff;
+  }
+}
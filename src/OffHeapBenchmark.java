@@ -0,0 +1,161 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Random;
+
+// Compares three ways of remembering visited states: a boxed HashSet<Long>, the on-heap
+// StateMap and the OffHeapStateMap. Each one has the same distinct keys put into it and is then
+// asked for every key and for as many keys it does not hold. The report gives the heap and
+// direct memory each one holds on to once full, the time the garbage collector spent while it
+// was filled and queried, and millions of inserts and lookups per second. The two maps store a
+// value (the parent state) with every key; the HashSet stores keys only. It then solves
+// generated boards with the solver's states on and off the heap. Run with
+//   java -Xmx3g OffHeapBenchmark [states] [boardSize] [boards] [seed]
+class OffHeapBenchmark {
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+    int boards = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : 2510;
+
+    long[] keys = new long[count];
+    long[] missing = new long[count];
+    for (int i = 0; i < count; i++) {
+      // distinct keys, spread like packed states of a large board
+      keys[i] = (i + 1) * 0x9e3779b97f4a7c15L;
+      missing[i] = -keys[i];
+    }
+    System.out.println(count + " states");
+    System.out.println("store\theap MB\tdirect MB\tgc millis\tinserts M/s\tlookups M/s");
+    for (int round = 0; round < 2; round++) {
+      // the first round warms up the JIT and is not printed
+      boolean print = round == 1;
+      measure("HashSet<Long>", keys, missing, 0, print);
+      measure("StateMap", keys, missing, 1, print);
+      measure("OffHeapStateMap", keys, missing, 2, print);
+    }
+
+    System.out.println();
+    System.out.println("solving " + boards + " generated " + size + "x" + size + " boards");
+    System.out.println("store\tstates\tmillis\tgc millis");
+    Random rng = new Random(seed);
+    long[] budget = {0, 1L << 30};
+    String[] names = {"StateMap", "OffHeapStateMap"};
+    for (int b = 0; b < boards; b++) {
+      BoardState board = LevelStrings.boardFor(
+              LevelStrings.randomLevel(rng, size, size * size / 3));
+      if (!board.fitsInLong()) {
+        b--;
+        continue;
+      }
+      // each board is solved twice each way, and only the second time is printed
+      for (int round = 0; round < 4; round++) {
+        int s = round % 2;
+        long gc = gcMillis();
+        long begin = System.nanoTime();
+        RushHourSolver solver = new RushHourSolver(board, budget[s]);
+        solver.solve();
+        if (round >= 2) {
+          System.out.println(names[s] + "\t" + solver.visited + "\t"
+                  + (System.nanoTime() - begin) / 1000000 + "\t" + (gcMillis() - gc));
+        }
+      }
+    }
+  }
+
+  // fills one store with keys and looks up keys and missing, printing the results if print
+  // is set; kind 0 is a HashSet<Long>, 1 a StateMap and 2 an OffHeapStateMap
+  static void measure(String name, long[] keys, long[] missing, int kind, boolean print) {
+    settle();
+    long heapBefore = heapUsed();
+    long directBefore = directUsed();
+    long gcBefore = gcMillis();
+
+    HashSet<Long> set = new HashSet<>();
+    StateMap map = new StateMap();
+    OffHeapStateMap offHeap = new OffHeapStateMap(1L << 31);
+    long begin = System.nanoTime();
+    for (long key : keys) {
+      if (kind == 0) {
+        set.add(key);
+      } else if (kind == 1) {
+        map.putIfAbsent(key, key);
+      } else {
+        offHeap.putIfAbsent(key, key);
+      }
+    }
+    long insertNanos = System.nanoTime() - begin;
+    int found = 0;
+    begin = System.nanoTime();
+    for (int i = 0; i < keys.length; i++) {
+      if (kind == 0) {
+        found += (set.contains(keys[i]) ? 1 : 0) + (set.contains(missing[i]) ? 1 : 0);
+      } else if (kind == 1) {
+        found += (map.containsKey(keys[i]) ? 1 : 0) + (map.containsKey(missing[i]) ? 1 : 0);
+      } else {
+        found += (offHeap.containsKey(keys[i]) ? 1 : 0)
+                + (offHeap.containsKey(missing[i]) ? 1 : 0);
+      }
+    }
+    long lookupNanos = System.nanoTime() - begin;
+    long gc = gcMillis() - gcBefore;
+    if (found != keys.length) {
+      throw new IllegalStateException(name + " found " + found + " of " + keys.length + " keys.");
+    }
+
+    settle();
+    long heap = heapUsed() - heapBefore;
+    long direct = directUsed() - directBefore;
+    if (print) {
+      System.out.println(name + "\t" + heap / (1 << 20) + "\t" + direct / (1 << 20) + "\t" + gc
+              + "\t" + ZobristBenchmark.perSecond(keys.length, insertNanos)
+              + "\t" + ZobristBenchmark.perSecond(keys.length * 2L, lookupNanos));
+    }
+    // keeps all three stores reachable until the memory in use has been read
+    if (set.size() + map.size() + offHeap.size() < 0) {
+      System.out.println();
+    }
+  }
+
+  // EFFECT: collects garbage until the direct memory in use stops changing, since direct
+  // buffers are freed a little after the collector finds them unused
+  static void settle() {
+    long direct = -1;
+    for (int tries = 0; tries < 20 && direct != directUsed(); tries++) {
+      direct = directUsed();
+      System.gc();
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  // bytes of heap in use
+  static long heapUsed() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  // bytes of direct buffers in use
+  static long directUsed() {
+    long used = 0;
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        used += pool.getMemoryUsed();
+      }
+    }
+    return used;
+  }
+
+  // milliseconds every garbage collector has spent collecting so far
+  static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return millis;
+  }
+}
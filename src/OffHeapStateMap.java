@@ -0,0 +1,224 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+// Represents a hash map from packed board states to packed board states kept outside the Java
+// heap, in direct ByteBuffers, for searches whose visited states would not fit in the heap (or
+// would keep the garbage collector busy copying them). It is laid out like StateMap: open
+// addressing with linear probing, each slot a key and a value side by side. A slot holds the
+// complement of its key, so the zeroes a new buffer starts with mark every slot as unused and
+// the table never has to be filled; the one key whose complement is zero is kept on the side.
+// Java 11 has no MemorySegment, and a ByteBuffer holds at most 2GB, so big tables are split
+// into chunks of CHUNK_SLOTS slots.
+//
+// The map never allocates more than maxBytes of direct memory at once, counting the old and
+// the new table while it grows. Once it cannot double within that cap it keeps filling its
+// table up to 3/4 full, and adding a state past that throws an IllegalStateException saying how
+// many states it holds, so a search runs out of room with a clear error rather than by running
+// the machine out of memory.
+class OffHeapStateMap implements IHashedStateMap {
+  // the bytes each slot takes: its key and its value
+  static final int SLOT_BYTES = 16;
+  // how many slots each direct buffer holds, 1GB worth
+  static final int CHUNK_BITS = 26;
+  static final int CHUNK_SLOTS = 1 << CHUNK_BITS;
+
+  LongBuffer[] chunks;
+  // always a power of two
+  long slots;
+  int size;
+  long maxBytes;
+  boolean hasEmptyKey;
+  long emptyKeyValue;
+  // hashes the keys if it is not null
+  ZobristHasher zobrist;
+
+  OffHeapStateMap(long maxBytes) {
+    this(1 << 10, maxBytes, null);
+  }
+
+  OffHeapStateMap(int expected, long maxBytes, ZobristHasher zobrist) {
+    long slots = Long.highestOneBit(Math.max(16, expected * 2L - 1)) << 1;
+    if (slots * SLOT_BYTES > maxBytes) {
+      slots = Long.highestOneBit(maxBytes / SLOT_BYTES);
+    }
+    if (slots < 16) {
+      throw new IllegalArgumentException("An off-heap state map needs at least "
+              + 16 * SLOT_BYTES + " bytes.");
+    }
+    this.maxBytes = maxBytes;
+    this.zobrist = zobrist;
+    this.chunks = allocate(slots);
+    this.slots = slots;
+  }
+
+  /*
+  F:
+  chunks -- LongBuffer[]
+  slots -- long
+  size -- int
+  maxBytes -- long
+  hasEmptyKey -- boolean
+  emptyKeyValue -- long
+  zobrist -- ZobristHasher
+  M:
+  putIfAbsent -- boolean
+  containsKey -- boolean
+  get -- long
+  size -- int
+  bytes -- long
+  hashOf -- int
+  find -- long
+  keyAt -- long
+  valueAt -- long
+  set -- void
+  grow -- void
+  allocate -- LongBuffer[]
+  MoF:
+  zobrist.hashPacked -- long
+   */
+
+  // adds key with the given value, unless key is already in the map
+  // EFFECT: may add key to this map, throwing an exception if the map is full
+  // returns whether the key was added
+  public boolean putIfAbsent(long key, long value) {
+    return this.putIfAbsent(key, value, this.hashOf(key));
+  }
+
+  // the same, given the hash of key (see hashOf)
+  public boolean putIfAbsent(long key, long value, int hash) {
+    if (key == StateMap.EMPTY) {
+      if (this.hasEmptyKey) {
+        return false;
+      }
+      this.hasEmptyKey = true;
+      this.emptyKeyValue = value;
+      this.size++;
+      return true;
+    }
+    long i = this.find(key, hash);
+    if (this.keyAt(i) == ~key) {
+      return false;
+    }
+    if ((this.size + 1) * 4L > this.slots * 3) {
+      throw new IllegalStateException("The off-heap state map is full: " + this.size
+              + " states fill its " + this.bytes() + " bytes, and growing would go over its cap of "
+              + this.maxBytes + " bytes.");
+    }
+    this.set(i, key, value);
+    this.size++;
+    if (this.size * 2L > this.slots && this.slots * 3 * SLOT_BYTES <= this.maxBytes) {
+      this.grow();
+    }
+    return true;
+  }
+
+  // is key in this map?
+  public boolean containsKey(long key) {
+    return this.containsKey(key, this.hashOf(key));
+  }
+
+  // the same, given the hash of key (see hashOf)
+  boolean containsKey(long key, int hash) {
+    if (key == StateMap.EMPTY) {
+      return this.hasEmptyKey;
+    }
+    return this.keyAt(this.find(key, hash)) == ~key;
+  }
+
+  // the value stored for key, throwing an exception if key is not in this map
+  public long get(long key) {
+    if (key == StateMap.EMPTY && this.hasEmptyKey) {
+      return this.emptyKeyValue;
+    }
+    long i = this.find(key, this.hashOf(key));
+    if (key == StateMap.EMPTY || this.keyAt(i) != ~key) {
+      throw new IllegalArgumentException("No such state in the map.");
+    }
+    return this.valueAt(i);
+  }
+
+  // how many keys are in this map
+  public int size() {
+    return this.size;
+  }
+
+  // how many bytes of direct memory the table takes
+  long bytes() {
+    return this.slots * SLOT_BYTES;
+  }
+
+  // the hash this map places key by, as StateMap.hashOf
+  int hashOf(long key) {
+    if (this.zobrist == null) {
+      return StateMap.hash(key);
+    } else {
+      return (int) this.zobrist.hashPacked(key);
+    }
+  }
+
+  // the slot that holds key, or the unused slot where it would go
+  long find(long key, int hash) {
+    long mask = this.slots - 1;
+    long i = (hash & 0xffffffffL) & mask;
+    long stored = this.keyAt(i);
+    while (stored != 0 && stored != ~key) {
+      i = (i + 1) & mask;
+      stored = this.keyAt(i);
+    }
+    return i;
+  }
+
+  // the complement of the key in slot i, or 0 if the slot is unused
+  long keyAt(long i) {
+    return this.chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & (CHUNK_SLOTS - 1)) * 2);
+  }
+
+  // the value in slot i
+  long valueAt(long i) {
+    return this.chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & (CHUNK_SLOTS - 1)) * 2 + 1);
+  }
+
+  // EFFECT: puts key and value in slot i
+  void set(long i, long key, long value) {
+    LongBuffer chunk = this.chunks[(int) (i >>> CHUNK_BITS)];
+    int at = (int) (i & (CHUNK_SLOTS - 1)) * 2;
+    chunk.put(at, ~key);
+    chunk.put(at + 1, value);
+  }
+
+  // EFFECT: doubles the number of slots and re-inserts every key; the old buffers are freed
+  // once the garbage collector finds them unused
+  void grow() {
+    LongBuffer[] oldChunks = this.chunks;
+    long oldSlots = this.slots;
+    this.chunks = allocate(oldSlots * 2);
+    this.slots = oldSlots * 2;
+    for (LongBuffer chunk : oldChunks) {
+      for (int j = 0; j < chunk.capacity(); j += 2) {
+        long stored = chunk.get(j);
+        if (stored != 0) {
+          this.set(this.find(~stored, this.hashOf(~stored)), ~stored, chunk.get(j + 1));
+        }
+      }
+    }
+  }
+
+  // zeroed direct buffers with room for the given number of slots, split into chunks
+  static LongBuffer[] allocate(long slots) {
+    int count = (int) Math.max(1, slots >>> CHUNK_BITS);
+    int chunkSlots = (int) Math.min(slots, CHUNK_SLOTS);
+    LongBuffer[] chunks = new LongBuffer[count];
+    try {
+      for (int c = 0; c < count; c++) {
+        chunks[c] = ByteBuffer.allocateDirect(chunkSlots * SLOT_BYTES)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+      }
+    } catch (OutOfMemoryError e) {
+      throw new IllegalStateException("Could not allocate " + slots * SLOT_BYTES
+              + " bytes of direct memory for an off-heap state map (see -XX:MaxDirectMemorySize).",
+              e);
+    }
+    return chunks;
+  }
+}
@@ -0,0 +1,145 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// A RushHourSolver that expands the states of each breadth-first layer on a ForkJoinPool. Every
+// layer is split between the workers, who record the states they reach in a StripedStateMap and
+// hand back the next layer; the search stops after the first layer that holds a won state, so
+// the moves it finds are exactly as few as the sequential search finds. Given a number of bytes,
+// the stripes of the map are OffHeapStateMaps that share them.
+class ParallelRushHourSolver extends RushHourSolver {
+  int threads;
+
+  ParallelRushHourSolver(BoardState board, int threads) {
+    this(board, threads, 0);
+  }
+
+  ParallelRushHourSolver(BoardState board, int threads, long offHeapBytes) {
+    super(board, offHeapBytes);
+    if (threads < 1) {
+      throw new IllegalArgumentException("A solver needs at least one thread.");
+    }
+    this.threads = threads;
+  }
+
+  ParallelRushHourSolver(RushHour game, int threads) {
+    this(game.board, threads);
+  }
+
+  /*
+  F:
+  board -- BoardState
+  start -- long
+  expanded -- int
+  visited -- int
+  offHeapBytes -- long
+  threads -- int
+  M:
+  solve -- Optional<IList<Move>>
+  isSolvable -- boolean
+  pathTo -- IList<Move>
+   */
+
+  // finds a shortest list of moves that wins the level, or None if it cannot be won
+  Optional<IList<Move>> solve() {
+    this.expanded = 0;
+    if (this.board.isWon()) {
+      return new Some<>(new MT<>());
+    }
+
+    StripedStateMap parents = new StripedStateMap(this.threads * 16, this.offHeapBytes);
+    parents.putIfAbsent(this.start, this.start);
+    LongList layer = new LongList();
+    layer.add(this.start);
+
+    ForkJoinPool pool = new ForkJoinPool(this.threads);
+    try {
+      while (layer.size > 0) {
+        ExpandLayer task = new ExpandLayer(this.board, layer, 0, layer.size, parents);
+        LongList next = pool.invoke(task);
+        this.expanded += layer.size;
+        for (int i = 0; i < next.size; i++) {
+          long state = next.get(i);
+          if (this.board.targetWinsAt(this.board.positionIn(state, this.board.target))) {
+            this.expanded++;
+            this.visited = parents.size();
+            return new Some<>(this.pathTo(state, parents));
+          }
+        }
+        layer = next;
+      }
+      this.visited = parents.size();
+      return new None<>();
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
+
+// Expands part of one breadth-first layer: every state between from and to is unpacked, its
+// moves are listed by a MoveGenerator, and the states not reached before are added to
+// the parents map and handed back as part of the next layer.
+class ExpandLayer extends RecursiveTask<LongList> {
+  private static final long serialVersionUID = 1L;
+  // below this many states, a task expands them itself instead of splitting
+  static final int THRESHOLD = 256;
+
+  BoardState template;
+  LongList layer;
+  int from;
+  int to;
+  IStateMap parents;
+
+  ExpandLayer(BoardState template, LongList layer, int from, int to, IStateMap parents) {
+    this.template = template;
+    this.layer = layer;
+    this.from = from;
+    this.to = to;
+    this.parents = parents;
+  }
+
+  /*
+  F:
+  template -- BoardState
+  layer -- LongList
+  from -- int
+  to -- int
+  parents -- IStateMap
+  M:
+  compute -- LongList
+  expand -- LongList
+   */
+
+  protected LongList compute() {
+    if (this.to - this.from <= THRESHOLD) {
+      return this.expand();
+    }
+    int middle = (this.from + this.to) >>> 1;
+    ExpandLayer left = new ExpandLayer(this.template, this.layer, this.from, middle, this.parents);
+    ExpandLayer right = new ExpandLayer(this.template, this.layer, middle, this.to, this.parents);
+    left.fork();
+    LongList result = right.compute();
+    result.addAll(left.join());
+    return result;
+  }
+
+  // expands the states of this task on its own copy of the board
+  LongList expand() {
+    BoardState board = new BoardState(this.template);
+    LongList next = new LongList();
+    MoveGenerator generator = new MoveGenerator(board);
+    int[] moves = new int[generator.maxMoves()];
+    for (int i = this.from; i < this.to; i++) {
+      long state = this.layer.get(i);
+      board.unpack(state);
+      int count = generator.generate(moves);
+      for (int m = 0; m < count; m++) {
+        long child = board.withPosition(state, MoveGenerator.vehicleOf(moves[m]),
+                MoveGenerator.positionOf(moves[m]));
+        if (this.parents.putIfAbsent(child, state)) {
+          next.add(child);
+        }
+      }
+    }
+    return next;
+  }
+}
@@ -0,0 +1,119 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import javalib.funworld.WorldScene;
+
+// Measures how long it takes to build one frame of a large board, and how many bytes that
+// allocates, three ways: the way makeScene used to (every vehicle's tiles flattened into one
+// list and drawn with the background and border by TileGrid.makeScene), with the same steps
+// fused into one pass through an ILazyList, and with a BoardRenderer. Every frame one vehicle is
+// moved, so the renderer has to redraw something each time. Run with
+//   java RenderBenchmark [boardSize] [frames] [seed]
+class RenderBenchmark {
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+    int frames = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 2510;
+    int tileSize = 8;
+
+    String level = LevelStrings.randomLevel(new Random(seed), size, size * size / 3);
+    ParsedLevel parsed = new RushHourUtils().parseLevel(level, tileSize);
+    BoardState board = parsed.toBoardState();
+    System.out.println(size + "x" + size + " board, " + board.listed + " vehicles, "
+            + frames + " frames");
+    System.out.println("renderer\tmicros/frame\tbytes/frame");
+
+    // warm up the JIT so no row is penalised
+    for (int kind = 0; kind < 3; kind++) {
+      measure(kind, parsed, board, frames, seed, tileSize);
+    }
+    String[] names = {"rebuild", "fused", "retained"};
+    for (int kind = 0; kind < 3; kind++) {
+      long bytes = allocatedBytes();
+      long micros = measure(kind, parsed, board, frames, seed, tileSize);
+      System.out.println(names[kind] + "\t" + micros + "\t"
+              + (allocatedBytes() - bytes) / frames);
+    }
+  }
+
+  // builds frames the given way (0 rebuild, 1 fused, 2 retained), returning micros per frame
+  static long measure(int kind, ParsedLevel parsed, BoardState board, int frames, long seed,
+                      int tileSize) {
+    if (kind == 0) {
+      return measureRebuild(parsed, board, frames, seed, tileSize);
+    } else if (kind == 1) {
+      return measureFused(parsed, board, frames, seed, tileSize);
+    } else {
+      return measureRetained(parsed, board, frames, seed, tileSize);
+    }
+  }
+
+  // the bytes allocated by this thread so far
+  static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // builds every frame from scratch, as makeScene did before BoardRenderer
+  static long measureRebuild(ParsedLevel parsed, BoardState board, int frames, long seed,
+                             int tileSize) {
+    Random rng = new Random(seed);
+    long begin = System.nanoTime();
+    WorldScene scene = null;
+    for (int i = 0; i < frames; i++) {
+      moveOne(board, rng);
+      IList<Vehicle> vehicles = board.toVehicles();
+      IList<Tile> tiles = vehicles.map(new VehiclesToTileLists()).fold(new FoldTileLists(),
+              new MT<>());
+      scene = parsed.tileGrid.makeScene(tiles, tileSize);
+    }
+    return (System.nanoTime() - begin) / 1000 / frames;
+  }
+
+  // builds every frame from scratch, with the tiles made while they are drawn
+  static long measureFused(ParsedLevel parsed, BoardState board, int frames, long seed,
+                           int tileSize) {
+    Random rng = new Random(seed);
+    long begin = System.nanoTime();
+    WorldScene scene = null;
+    for (int i = 0; i < frames; i++) {
+      moveOne(board, rng);
+      ILazyList<Tile> tiles = board.toVehicles().lazy().flatMap(new VehiclesToTileLists());
+      scene = parsed.tileGrid.makeScene(tiles, tileSize);
+    }
+    return (System.nanoTime() - begin) / 1000 / frames;
+  }
+
+  // builds every frame with one BoardRenderer
+  static long measureRetained(ParsedLevel parsed, BoardState board, int frames, long seed,
+                              int tileSize) {
+    Random rng = new Random(seed);
+    BoardRenderer renderer = new BoardRenderer(parsed.tileGrid, tileSize);
+    Optional<Vehicle> highlight = new None<>();
+    long begin = System.nanoTime();
+    WorldScene scene = null;
+    for (int i = 0; i < frames; i++) {
+      moveOne(board, rng);
+      scene = renderer.render(board, highlight);
+    }
+    return (System.nanoTime() - begin) / 1000 / frames;
+  }
+
+  // EFFECT: slides a random vehicle one cell, if it can move at all
+  static void moveOne(BoardState board, Random rng) {
+    for (int tries = 0; tries < board.vehicleCount(); tries++) {
+      int v = rng.nextInt(board.vehicleCount());
+      int p = board.pos[v];
+      int last = board.horizontal[v] ? board.cols : board.rows;
+      if (p > 0 && board.canEnter(v, board.cellOf(v, p - 1, 0))) {
+        board.moveTo(v, p - 1);
+        return;
+      }
+      if (p + board.length[v] < last && board.canEnter(v, board.cellOf(v, p + 1,
+              board.length[v] - 1))) {
+        board.moveTo(v, p + 1);
+        return;
+      }
+    }
+  }
+}
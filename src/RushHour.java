@@ -3,8 +3,21 @@ import javalib.funworld.WorldScene;
 import javalib.worldimages.*;
 import tester.Tester;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
 
 // represents a value that may or may not exist
 interface Optional<T> {
@@ -102,6 +115,9 @@ interface IList<T> {
 
   // Appends that list to this one, creating a new list.
   IList<T> append(IList<T> that);
+
+  // A lazy view of this list, so several steps can be run in one pass without building lists.
+  ILazyList<T> lazy();
 }
 
 //represents a nonempty IList<T>
@@ -136,8 +152,21 @@ class Cons<T> implements IList<T> {
    */
 
   // Applies the func to all elements in the list.
+  // Walks the list in a loop, so long lists don't overflow the stack.
   public <U> IList<U> map(Function<T, U> func) {
-    return new Cons<U>(func.apply(this.first), this.rest.map(func));
+    Cons<U> head = new Cons<U>(func.apply(this.first), new MT<>());
+    Cons<U> last = head;
+    IList<T> rest = this.rest;
+    while (rest instanceof Cons) {
+      Cons<T> cell = (Cons<T>) rest;
+      Cons<U> next = new Cons<U>(func.apply(cell.first), new MT<>());
+      last.rest = next;
+      last = next;
+      rest = cell.rest;
+    }
+    // whatever ends the chain (an MT, or another kind of list appended on) maps itself
+    last.rest = rest.map(func);
+    return head;
   }
 
   /*
@@ -149,11 +178,21 @@ class Cons<T> implements IList<T> {
 
   // Produces a list only containing elements for which func returns true.
   public IList<T> filter(Function<T, Boolean> func) {
-    if (func.apply(this.first)) {
-      return new Cons<T>(this.first, this.rest.filter(func));
-    } else {
-      return this.rest.filter(func);
+    // the kept cells hang off a placeholder cell, which is dropped at the end
+    Cons<T> head = new Cons<T>(this.first, new MT<>());
+    Cons<T> last = head;
+    IList<T> rest = this;
+    while (rest instanceof Cons) {
+      Cons<T> cell = (Cons<T>) rest;
+      if (func.apply(cell.first)) {
+        Cons<T> next = new Cons<T>(cell.first, new MT<>());
+        last.rest = next;
+        last = next;
+      }
+      rest = cell.rest;
     }
+    last.rest = rest.filter(func);
+    return head.rest;
   }
 
   /*
@@ -166,12 +205,35 @@ class Cons<T> implements IList<T> {
 
   // Applies the function from left to right to each item in the list and combines them.
   public <U> U fold(BiFunction<T, U, U> func, U value) {
-    return this.rest.fold(func, func.apply(this.first, value));
+    U result = func.apply(this.first, value);
+    IList<T> rest = this.rest;
+    while (rest instanceof Cons) {
+      Cons<T> cell = (Cons<T>) rest;
+      result = func.apply(cell.first, result);
+      rest = cell.rest;
+    }
+    return rest.fold(func, result);
   }
 
   // Appends that list to this one, creating a new list.
   public IList<T> append(IList<T> that) {
-    return new Cons<T>(this.first, this.rest.append(that));
+    Cons<T> head = new Cons<T>(this.first, new MT<>());
+    Cons<T> last = head;
+    IList<T> rest = this.rest;
+    while (rest instanceof Cons) {
+      Cons<T> cell = (Cons<T>) rest;
+      Cons<T> next = new Cons<T>(cell.first, new MT<>());
+      last.rest = next;
+      last = next;
+      rest = cell.rest;
+    }
+    last.rest = rest.append(that);
+    return head;
+  }
+
+  // A lazy view of this list.
+  public ILazyList<T> lazy() {
+    return new LazyList<>(this);
   }
 }
 
@@ -228,6 +290,11 @@ class MT<T> implements IList<T> {
   public IList<T> append(IList<T> that) {
     return that;
   }
+
+  // A lazy view of this list.
+  public ILazyList<T> lazy() {
+    return new LazyList<>(this);
+  }
 }
 
 // MARK: Drawing
@@ -264,14 +331,29 @@ class Tile {
   P:
   tileSize - int
    */
-  // Draw an individual tile, given a tile size.
+  // Draw an individual tile, given a tile size. The image comes from the shared
+  // TileImageCache, so tiles of the same color and size share one image.
   WorldImage draw(int tileSize) {
-    return new RectangleImage(
-                  tileSize,
-                  tileSize,
-                  OutlineMode.SOLID,
-                  this.color
-          ).movePinhole(-0.5 * tileSize, -0.5 * tileSize);
+    return this.draw(tileSize, TileImageCache.SHARED);
+  }
+
+  /*
+  F:
+  col - int
+  row - int
+  color - Color
+  M:
+  draw - WorldImage
+  drawOntoScene - WorldScene
+  P:
+  tileSize - int
+  cache - TileImageCache
+  MoP:
+  cache.imageFor - WorldImage
+   */
+  // Draw an individual tile, given a tile size and the cache to take the image from.
+  WorldImage draw(int tileSize, TileImageCache cache) {
+    return cache.imageFor(this.color, tileSize);
   }
 
   /*
@@ -290,21 +372,33 @@ class Tile {
    */
   // Draw an individual tile onto a given scene, given a tile size.
   WorldScene drawOntoScene(WorldScene scene, int tileSize) {
-    return scene.placeImageXY(this.draw(tileSize),
+    return this.drawOntoScene(scene, tileSize, TileImageCache.SHARED);
+  }
+
+  // Draw an individual tile onto a given scene, given a tile size and the cache to take the
+  // image from.
+  WorldScene drawOntoScene(WorldScene scene, int tileSize, TileImageCache cache) {
+    return scene.placeImageXY(this.draw(tileSize, cache),
             this.col * tileSize, this.row * tileSize);
   }
 }
 
-// Used to draw tiles onto a world scene.
+// Used to draw tiles onto a world scene, taking the tile images from a TileImageCache.
 class DrawTilesOntoGrid implements BiFunction<Tile, WorldScene, WorldScene> {
   int tileSize;
+  TileImageCache cache;
 
   DrawTilesOntoGrid(int tileSize) {
+    this(tileSize, TileImageCache.SHARED);
+  }
+
+  DrawTilesOntoGrid(int tileSize, TileImageCache cache) {
     this.tileSize = tileSize;
+    this.cache = cache;
   }
 
   public WorldScene apply(Tile tile, WorldScene sceneSoFar) {
-    return tile.drawOntoScene(sceneSoFar, tileSize);
+    return tile.drawOntoScene(sceneSoFar, tileSize, this.cache);
   }
 }
 
@@ -393,7 +487,31 @@ class TileGrid {
    */
   // Create a scene from the tile grid, the given tiles to draw, and a size for each tile.
   WorldScene makeScene(IList<Tile> tiles, int tileSize) {
-    IList<Tile> tilesWithBorder = tiles.append(this.createBorderTiles(tileSize));
+    return this.makeScene(tiles.lazy(), tileSize);
+  }
+
+  /*
+  F:
+  cols - int
+  rows - int
+  exitCol - int
+  exitRow - int
+  tileSize - int
+  M:
+  totalWidth - int
+  totalHeight - int
+  makeScene - WorldScene
+  P:
+  tiles - ILazyList<Tile>
+  tileSize - int
+  MoP:
+  tiles.concat - ILazyList<Tile>
+  tiles.fold - U
+   */
+  // Create a scene from the tile grid and a lazy view of the tiles to draw, so the tiles can be
+  // made while they are drawn instead of being collected into a list first.
+  WorldScene makeScene(ILazyList<Tile> tiles, int tileSize) {
+    ILazyList<Tile> tilesWithBorder = tiles.concat(this.createBorderTiles(tileSize).lazy());
     WorldScene base = new WorldScene(
             this.cols * tileSize,
             this.rows * tileSize)
@@ -408,6 +526,38 @@ class TileGrid {
     return tilesWithBorder.fold(new DrawTilesOntoGrid(tileSize), base);
   }
 
+  /*
+  F:
+  cols - int
+  rows - int
+  exitCol - int
+  exitRow - int
+  tileSize - int
+  M:
+  totalWidth - int
+  totalHeight - int
+  makeScene - WorldScene
+  makeStaticScene - WorldScene
+  P:
+  tileSize - int
+   */
+  // Create a scene of just the parts of the grid that never change: the white background with
+  // the border drawn on it. Vehicles can be drawn on top of it afterwards.
+  WorldScene makeStaticScene(int tileSize) {
+    WorldScene base = new WorldScene(
+            this.cols * tileSize,
+            this.rows * tileSize)
+            .placeImageXY(
+                    new RectangleImage(
+                            this.cols * tileSize,
+                            this.rows * tileSize,
+                            OutlineMode.SOLID,
+                            Color.WHITE),
+                    (this.cols * tileSize) / 2,
+                    (this.rows * tileSize) / 2);
+    return this.createBorderTiles(tileSize).fold(new DrawTilesOntoGrid(tileSize), base);
+  }
+
   /*
   F:
   cols - int
@@ -461,7 +611,9 @@ class TileGrid {
             Color.DARK_GRAY,
             tileSize
     );
-    return topBorder
+    // collected into an ArrayIList, so every border is copied once instead of once per append
+    return new ArrayIList<Tile>()
+            .append(topBorder)
             .append(bottomBorder)
             .append(leftBorder)
             .append(topRightBorder)
@@ -487,22 +639,20 @@ class TileGrid {
   color - Color
    */
   // Create a line of tiles, from one point to the next point.
+  // The list is built from the far end back, in a loop, so long borders don't overflow the stack.
   IList<Tile> createBorderTilesHelper(int x1, int y1, int x2, int y2, Color color, int tileSize) {
     if (x1 != x2 && y1 != y2) {
       throw new IllegalArgumentException("createBorderTiles is only for straight lines");
     }
 
-    if ((x2 - x1) > 0) {
-      return new Cons<>(
-              new Tile(x1,y1, color),
-              createBorderTilesHelper(x1 + 1, y1, x2, y2, color, tileSize));
-    } else if ((y2 - y1) > 0) {
-      return new Cons<>(
-              new Tile(x1,y1, color),
-              createBorderTilesHelper(x1,y1 + 1, x2, y2, color, tileSize));
-    } else {
-      return new Cons<>(new Tile(x1,y1, color), new MT<>());
+    int steps = Math.max(Math.max(x2 - x1, y2 - y1), 0);
+    int deltaX = (x2 - x1) > 0 ? 1 : 0;
+    int deltaY = deltaX == 0 && (y2 - y1) > 0 ? 1 : 0;
+    IList<Tile> tiles = new MT<>();
+    for (int i = steps; i >= 0; i--) {
+      tiles = new Cons<>(new Tile(x1 + i * deltaX, y1 + i * deltaY, color), tiles);
     }
+    return tiles;
   }
 }
 
@@ -627,6 +777,19 @@ class Vehicle {
             || (this.x2 == x && this.y2 == y));
   }
 
+  /*
+  P:
+  that -- Vehicle
+  MoP:
+   */
+
+  //determines if this vehicle covers exactly the same cells as that vehicle
+  public boolean sameCells(Vehicle that) {
+    return (this.atLocation(that.x1, that.y1) && this.atLocation(that.x2, that.y2))
+            && this.width() == that.width()
+            && this.height() == that.height();
+  }
+
   /*
   P:
   MoP:
@@ -744,6 +907,8 @@ class RushHour extends World {
   Vehicle targetVehicle;
   int endX;
   int endY;
+  BoardState board;
+  BoardRenderer renderer;
 
 
   RushHour(IList<Vehicle> vehicles, TileGrid board, int tileSize,
@@ -757,6 +922,8 @@ class RushHour extends World {
     this.endX = endX;
     this.endY = endY;
     this.currentVehicleClicked = new None<>();
+    this.board = new BoardState(vehicles, board, targetVehicle);
+    this.renderer = new BoardRenderer(board, tileSize);
   }
 
   /*
@@ -769,6 +936,8 @@ class RushHour extends World {
   targetVehicle -- Vehicle
   endX -- int
   endY -- int
+  board -- BoardState
+  renderer -- BoardRenderer
   M:
   toImage -- WorldImage
   makeScene -- WorldScene
@@ -781,22 +950,31 @@ class RushHour extends World {
   utils -- RushHourUtils
   tileSize -- int
   MoP:
-  utils.getVehiclesList
-  utils.getGrid
-  utils.getEndX
-  utils.getEndY
+  utils.parseLevel
    */
 
   //constructs RushHour from a string which represents the level
   RushHour(String level, RushHourUtils utils, int tileSize) {
-    this(utils.getVehiclesList(level, level.length(),
-                    0, 0, 0, new MT<Vehicle>(), tileSize),
-            utils.getTileGrid(level, 0, 0, 0, tileSize),
+    this(utils.parseLevel(level, tileSize), tileSize);
+  }
+
+  /*
+  P:
+  level -- ParsedLevel
+  tileSize -- int
+   */
+
+  //constructs RushHour from a level that has already been read
+  //throws an IllegalArgumentException if any of its vehicles overlap
+  RushHour(ParsedLevel level, int tileSize) {
+    this(level.vehicles,
+            level.tileGrid,
             tileSize,
-    //below vehicle seems to be the same target everytime
-    new Vehicle(1, 3, 2, 3, Color.RED, tileSize),
-                utils.getEndX(level, 0, 0, 0),
-                utils.getEndY(level, 0, 0, 0));
+            //below vehicle seems to be the same target everytime
+            level.targetVehicle(),
+            level.endX,
+            level.endY);
+    this.board.checkNoOverlaps();
   }
 
   /*
@@ -804,18 +982,9 @@ class RushHour extends World {
   MoP;
    */
 
-  //creates a WorldScene
+  //creates a WorldScene, redrawing only the vehicles that moved since the last one
   public WorldScene makeScene() {
-    if (this.currentVehicleClicked.isSome()) {
-      IList<Tile> vehicleTiles =
-              this.vehicles.map(new VehiclesToTileLists()).fold(new FoldTileLists(), new MT<>())
-                      .append(this.currentVehicleClicked.unwrap().toTilesWithColor(Color.YELLOW));
-      return this.tileGrid.makeScene(vehicleTiles, this.tileSize);
-    } else {
-      IList<Tile> vehicleTiles = this.vehicles.map(
-              new VehiclesToTileLists()).fold(new FoldTileLists(), new MT<>());
-      return this.tileGrid.makeScene(vehicleTiles, this.tileSize);
-    }
+    return this.renderer.render(this.board, this.currentVehicleClicked);
   }
 
   /*
@@ -825,36 +994,152 @@ class RushHour extends World {
 
   //determines if this RushHour has been won
   public boolean winCheck() {
-    return this.targetVehicle.atLocation(this.endX, this.endY);
+    return this.board.isWon();
   }
 
-  // handles mouse clicks.
+  // handles mouse clicks, looking the clicked tile up in the board's cell index. If vehicles
+  // overlap on that tile, the one that comes first in the vehicles list is picked.
   // EFFECT: alters the currentClickedVehicle field (will become a Some value if a vehicle was
   // clicked, None if no vehicle was).
   public World onMouseClicked(Posn mouse) {
     int tileX = mouse.x / this.tileSize;
     int tileY = mouse.y / this.tileSize;
 
-    this.currentVehicleClicked = this.vehicles.fold(
-            new WasVehicleClicked(tileX, tileY),
-            new None<>());
+    this.currentVehicleClicked = this.board.vehicleAt(tileX, tileY);
     return this;
   }
 }
 
+// Represents everything read from a level string in one pass: the vehicles (in the same order
+// getVehiclesList gives them), the grid and the exit.
+class ParsedLevel {
+  IList<Vehicle> vehicles;
+  TileGrid tileGrid;
+  int endX;
+  int endY;
+
+  ParsedLevel(IList<Vehicle> vehicles, TileGrid tileGrid, int endX, int endY) {
+    this.vehicles = vehicles;
+    this.tileGrid = tileGrid;
+    this.endX = endX;
+    this.endY = endY;
+  }
+
+  /*
+  F:
+  vehicles -- IList<Vehicle>
+  tileGrid -- TileGrid
+  endX -- int
+  endY -- int
+  M:
+  targetVehicle -- Vehicle
+  toBoardState -- BoardState
+   */
+
+  // the vehicle that has to reach the exit, which levels always start in the same place
+  Vehicle targetVehicle() {
+    return new Vehicle(1, 3, 2, 3, Color.RED, this.tileGrid.tileSize);
+  }
+
+  // the BoardState of this level, as RushHour would build it
+  BoardState toBoardState() {
+    return new BoardState(this.vehicles, this.tileGrid, this.targetVehicle());
+  }
+}
+
 //represents a utility class with helper methods for RushHour
 class RushHourUtils {
 
   /*
   F:
   M:
+  parseLevel -- ParsedLevel
   getVehiclesList -- IList<Vehicle>
   getGrid -- Grid
   getEndX -- int
   getEndY -- int
+  isVehicle -- boolean
+  vehicleAt -- Vehicle
   MoF:
    */
 
+  /*
+  P:
+  level -- CharSequence
+  tileSize -- int
+  MoP:
+  level.charAt -- char
+  level.length -- int
+   */
+
+  //reads the vehicles, grid and exit of level in a single pass over its characters.
+  //Rows end at a "+", "|" or "X" that is not in the first column, and the last character
+  //is not counted towards the grid, the same as getVehiclesList and getTileGrid.
+  public ParsedLevel parseLevel(CharSequence level, int tileSize) {
+    IList<Vehicle> vehicles = new MT<>();
+    int last = level.length() - 1;
+    int r = 0;
+    int c = 0;
+    int endX = -1;
+    int endY = -1;
+    for (int i = 0; i <= last; i++) {
+      char letter = level.charAt(i);
+      if (letter == 'X' && endX < 0) {
+        endX = c;
+        endY = r;
+      }
+      if (i == last) {
+        break;
+      }
+      if (this.isVehicle(letter)) {
+        vehicles = new Cons<>(this.vehicleAt(letter, c, r, tileSize), vehicles);
+        c++;
+      } else if (c == 0 || (letter != '+' && letter != '|' && letter != 'X')) {
+        c++;
+      } else {
+        r++;
+        c = 0;
+      }
+    }
+    if (endX < 0) {
+      throw new IllegalArgumentException("The level has no exit.");
+    }
+    return new ParsedLevel(vehicles, new TileGrid(c + 1, r + 1, tileSize, endX, endY), endX, endY);
+  }
+
+  /*
+  P:
+  letter -- char
+   */
+
+  //is letter the start of a vehicle?
+  boolean isVehicle(char letter) {
+    return letter == 'T' || letter == 't' || letter == 'C' || letter == 'c';
+  }
+
+  /*
+  P:
+  letter -- char
+  c -- int
+  r -- int
+  tileSize -- int
+   */
+
+  //the vehicle that letter starts at column c and row r:
+  //T yellow, t green, C blue, c magenta
+  Vehicle vehicleAt(char letter, int c, int r, int tileSize) {
+    if (letter == 'T') {
+      //length = 3, but add 2 because starting posn = 1 block
+      return new Vehicle(c, r, c, r + 2, Color.ORANGE, tileSize);
+    } else if (letter == 't') {
+      return new Vehicle(c, r, c + 2, r, Color.GREEN, tileSize);
+    } else if (letter == 'C') {
+      return new Vehicle(c, r, c, r + 1, Color.BLUE, tileSize);
+    } else {
+      return new Vehicle(c, r, c + 1, r, Color.MAGENTA, tileSize);
+    }
+  }
+
   /*
   P:
   level -- String
@@ -868,68 +1153,26 @@ class RushHourUtils {
   ...
    */
 
-  //gathers all vehicles in level into an IList<Vehicle>
+  //gathers all vehicles in level into an IList<Vehicle>, starting at index i (row r, column c)
+  //and adding onto currList
   public IList<Vehicle> getVehiclesList(String level, int length,
                                         int i, int r, int c, IList<Vehicle> currList,
                                         int tileSize) {
-    String currLetter = level.substring(i, i + 1);
-    if (i == length - 1) {
-      return currList;
-    } else if (currLetter.equals("T")) {
-      return this.getVehiclesList(level, length,
-              i + 1, r, c + 1, new Cons<Vehicle>(
-                      new Vehicle(c,
-                              r,
-                              //length = 3, but add 2 because starting posn = 1 block
-                              c,
-                              r + 2,
-                              Color.ORANGE,
-                              tileSize),
-                      currList), tileSize);
-    } else if (currLetter.equals("t")) {
-      return this.getVehiclesList(level, length,
-              i + 1, r, c + 1, new Cons<Vehicle>(
-                      new Vehicle(
-                              c,
-                              r,
-                              c + 2,
-                              r,
-                              Color.GREEN,
-                              tileSize),
-                      currList), tileSize);
-    } else if (currLetter.equals("C")) {
-      return this.getVehiclesList(level, length,
-              i + 1, r, c + 1, new Cons<Vehicle>(
-                      new Vehicle(
-                              c,
-                              r,
-                              c,
-                              r + 1,
-                              Color.BLUE,
-                              tileSize),
-                      currList), tileSize);
-    } else if (currLetter.equals("c")) {
-      return this.getVehiclesList(level, length,
-              i + 1, r, c + 1, new Cons<Vehicle>(
-                      new Vehicle(
-                              c,
-                              r,
-                              c + 1,
-                              r,
-                              Color.MAGENTA,
-                              tileSize),
-                      currList), tileSize);
-    } else if (c == 0
-            || currLetter.equals("-")
-            || (!currLetter.equals("+")
-            && !currLetter.equals("|")
-            && !currLetter.equals("X"))) {
-      return this.getVehiclesList(level, length,
-              i + 1, r, c + 1, currList, tileSize);
-    } else {
-      return this.getVehiclesList(level, length,
-              i + 1, r + 1, 0, currList, tileSize);
+    for (; i < length - 1; i++) {
+      char letter = level.charAt(i);
+      if (this.isVehicle(letter)) {
+        currList = new Cons<Vehicle>(this.vehicleAt(letter, c, r, tileSize), currList);
+        c++;
+      } else if (c == 0
+              || letter == '-'
+              || (letter != '+' && letter != '|' && letter != 'X')) {
+        c++;
+      } else {
+        r++;
+        c = 0;
+      }
     }
+    return currList;
   }
 
   /*
@@ -942,25 +1185,31 @@ class RushHourUtils {
   MoP:
    */
 
-  //determines the dimensions of level and creates a Grid from them
+  //determines the dimensions of level and creates a Grid from them. The exit is found in
+  //the same pass when the scan starts at the beginning of the level.
   public TileGrid getTileGrid(String level, int i, int r, int currCol, int tileSize) {
-    String currLetter = level.substring(i, i + 1);
-    if (i == level.length() - 1) {
-      //0 index
-      return new TileGrid(
-              currCol + 1,
-              r + 1,
-              tileSize,
-              this.getEndX(level, 0, 0, 0),
-              this.getEndY(level, 0, 0, 0));
-    } else if (currCol == 0
-            || (!currLetter.equals("+")
-            && !currLetter.equals("|")
-            && !currLetter.equals("X"))) {
-      return this.getTileGrid(level, i + 1, r, currCol + 1, tileSize);
-    } else {
-      return this.getTileGrid(level, i + 1, r + 1, 0, tileSize);
+    boolean fromStart = i == 0 && r == 0 && currCol == 0;
+    int endX = -1;
+    int endY = -1;
+    for (; i < level.length() - 1; i++) {
+      char letter = level.charAt(i);
+      if (fromStart && letter == 'X' && endX < 0) {
+        endX = currCol;
+        endY = r;
+      }
+      if (currCol == 0 || (letter != '+' && letter != '|' && letter != 'X')) {
+        currCol++;
+      } else {
+        r++;
+        currCol = 0;
+      }
+    }
+    if (endX < 0) {
+      endX = this.getEndX(level, 0, 0, 0);
+      endY = this.getEndY(level, 0, 0, 0);
     }
+    //0 index
+    return new TileGrid(currCol + 1, r + 1, tileSize, endX, endY);
   }
 
   /*
@@ -975,16 +1224,16 @@ class RushHourUtils {
 
   //find the end position and returns the x value of that coordinate
   public int getEndX(String level, int i, int r, int currCol) {
-    String currLetter = level.substring(i, i + 1);
-    if (currLetter.equals("X")) {
-    return currCol;
-    } else if (currCol == 0
-              || (!currLetter.equals("+")
-              && !currLetter.equals("|"))) {
-      return this.getEndX(level, i + 1, r, currCol + 1);
-    } else {
-      return this.getEndX(level, i + 1, r + 1, 0);
+    for (; level.charAt(i) != 'X'; i++) {
+      char letter = level.charAt(i);
+      if (currCol == 0 || (letter != '+' && letter != '|')) {
+        currCol++;
+      } else {
+        r++;
+        currCol = 0;
+      }
     }
+    return currCol;
   }
 
   /*
@@ -999,16 +1248,16 @@ class RushHourUtils {
 
   //find the end position and returns the y value of that coordinate
   public int getEndY(String level, int i, int r, int currCol) {
-    String currLetter = level.substring(i, i + 1);
-    if (currLetter.equals("X")) {
-      return r;
-    } else if (currCol == 0
-            || (!currLetter.equals("+")
-            && !currLetter.equals("|"))) {
-      return this.getEndY(level, i + 1, r, currCol + 1);
-    } else {
-      return this.getEndY(level, i + 1, r + 1, 0);
+    for (; level.charAt(i) != 'X'; i++) {
+      char letter = level.charAt(i);
+      if (currCol == 0 || (letter != '+' && letter != '|')) {
+        currCol++;
+      } else {
+        r++;
+        currCol = 0;
+      }
     }
+    return r;
   }
 }
 
@@ -1235,4 +1484,1132 @@ class ExamplesRushHour {
             game.currentVehicleClicked,
             new Some<>(new Vehicle(1, 3, 2, 3, Color.MAGENTA, 20)));
   }
+
+  boolean testBoardState(Tester t) {
+    BoardState board = game1.board;
+    return t.checkExpect(board.vehicleCount(), 10)
+            && t.checkExpect(board.toVehicle(board.target),
+            new Vehicle(1, 3, 2, 3, Color.MAGENTA, 20))
+            && t.checkExpect(board.isOccupied(5, 4), true)
+            && t.checkExpect(board.isOccupied(4, 4), false)
+            && t.checkExpect(board.isBlocked(0, 4), true)
+            && t.checkExpect(board.isBlocked(7, 3), false)
+            && t.checkExpect(board.overlaps(0, 1), false)
+            && t.checkExpect(game3.board.overlaps(game3.board.target, 2), true)
+            && t.checkExpect(game3.board.isWon(), true)
+            && t.checkExpect(game1.board.toVehicles(), game1.vehicles);
+  }
+
+  // a vehicle that sticks out of the grid is refused with a message, not an index error
+  boolean testBoardStateOffGrid(Tester t) {
+    return t.checkConstructorException(new IllegalArgumentException(
+            "Vehicle 0 covers (3, 6), which is off the 7 x 6 grid."),
+            "RushHour",
+            "+-----+"
+                    + "|     |"
+                    + "|     |"
+                    + "|c    X"
+                    + "|  T  |"
+                    + "+-----+",
+            new RushHourUtils(), 30)
+            // the target car always starts at (1, 3), below the only open row of this grid
+            && t.checkConstructorException(new IllegalArgumentException(
+            "Vehicle 1 covers (1, 3), which is off the 5 x 3 grid."),
+            "RushHour", "+---+|c  X+---+", new RushHourUtils(), 30);
+  }
+
+  boolean testBoardStateMoveTo(Tester t) {
+    BoardState board = new RushHour(
+            "+------+"
+                    + "|      |"
+                    + "|  C T |"
+                    + "|c    CX"
+                    + "|t     |"
+                    + "|CCC c |"
+                    + "|    c |"
+                    + "+------+",
+            new RushHourUtils(),
+            20).board;
+    board.moveTo(board.target, 3);
+    return t.checkExpect(board.isOccupied(1, 3), false)
+            && t.checkExpect(board.isOccupied(4, 3), true)
+            && t.checkExpect(board.toVehicle(board.target),
+            new Vehicle(3, 3, 4, 3, Color.MAGENTA, 20))
+            && t.checkExpect(board.isWon(), false);
+  }
+
+  boolean testSameCells(Tester t) {
+    return t.checkExpect(car1.sameCells(new Vehicle(1, 2, 2, 2, Color.RED, 20)), true)
+            && t.checkExpect(car1.sameCells(car2), false);
+  }
+
+  // plays moves on a copy of board, checking that each vehicle starts where the move says and
+  // that every cell it slides onto is free; returns the board after the last move, or null if a
+  // move was not legal
+  BoardState playLegally(BoardState board, IList<Move> moves) {
+    return moves.fold((move, played) -> {
+      if (played == null || played.pos[move.vehicle] != move.from) {
+        return null;
+      }
+      int step = move.to > move.from ? 1 : -1;
+      int front = step > 0 ? played.length[move.vehicle] - 1 : 0;
+      for (int p = move.from + step; p != move.to + step; p += step) {
+        if (!played.canEnter(move.vehicle, played.cellOf(move.vehicle, p, front))) {
+          return null;
+        }
+      }
+      played.moveTo(move.vehicle, move.to);
+      return played;
+    }, new BoardState(board));
+  }
+
+  boolean testSolver(Tester t) {
+    Optional<IList<Move>> solution = new RushHourSolver(game1).solve();
+    BoardState played = this.playLegally(game1.board, solution.unwrap());
+    return t.checkExpect(solution.isSome(), true)
+            && t.checkExpect(solution.unwrap().fold((move, count) -> count + 1, 0), 15)
+            && t.checkExpect(played != null && played.isWon(), true)
+            // sliding the target car straight through the vehicles in its way is caught
+            && t.checkExpect(this.playLegally(game1.board, new Cons<>(
+            new Move(game1.board.target, 1, 5), new MT<>())), null)
+            && t.checkExpect(game1.board.isWon(), false)
+            && t.checkExpect(new RushHourSolver(game2).isSolvable(), false)
+            && t.checkExpect(new RushHourSolver(game3).solve(), new Some<IList<Move>>(new MT<>()))
+            // 27 vehicles on a 12 x 12 grid take 4 bits each, more than a long holds
+            && t.checkConstructorException(new IllegalArgumentException("This board has 27"
+                    + " vehicles of 4 bits each, but a solver can only search boards whose"
+                    + " vehicles fit in 64 bits (16 vehicles here)."),
+            "RushHourSolver",
+            LevelStrings.boardFor(LevelStrings.randomLevel(new Random(1), 10, 40)));
+  }
+
+  boolean testStateMap(Tester t) {
+    StateMap map = new StateMap(2);
+    for (long key = 0; key < 100; key++) {
+      map.putIfAbsent(key * 7, key);
+    }
+    return t.checkExpect(map.size(), 100)
+            && t.checkExpect(map.putIfAbsent(14, 0), false)
+            && t.checkExpect(map.get(14), 2L)
+            && t.checkExpect(map.containsKey(15), false)
+            && t.checkExpect(map.putIfAbsent(StateMap.EMPTY, 5), true)
+            && t.checkExpect(map.get(StateMap.EMPTY), 5L);
+  }
+
+  boolean testBoardStatePack(Tester t) {
+    BoardState board = new BoardState(game1.board);
+    long state = board.pack();
+    board.moveTo(0, 1);
+    long moved = board.pack();
+    board.unpack(state);
+    return t.checkExpect(board.pack(), state)
+            && t.checkExpect(board.positionIn(moved, 0), 1)
+            && t.checkExpect(board.withPosition(state, 0, 1), moved)
+            && t.checkExpect(board.isOccupied(5, 5), true);
+  }
+
+  boolean testParallelSolver(Tester t) {
+    ParallelRushHourSolver onHeap = new ParallelRushHourSolver(game1, 2);
+    Optional<IList<Move>> solution = onHeap.solve();
+    ParallelRushHourSolver offHeap = new ParallelRushHourSolver(game1.board, 2, 1 << 20);
+    Optional<IList<Move>> offHeapSolution = offHeap.solve();
+    return t.checkExpect(solution.unwrap().fold((move, count) -> count + 1, 0),
+            new RushHourSolver(game1).solve().unwrap().fold((move, count) -> count + 1, 0))
+            && t.checkExpect(offHeapSolution.unwrap().fold((move, count) -> count + 1, 0), 15)
+            && t.checkExpect(onHeap.visited > 0, true)
+            && t.checkExpect(offHeap.visited, onHeap.visited)
+            && t.checkExpect(new ParallelRushHourSolver(game2, 3).isSolvable(), false)
+            && t.checkExpect(new ParallelRushHourSolver(game3, 1).solve(),
+            new Some<IList<Move>>(new MT<>()))
+            && t.checkConstructorException(
+            new IllegalArgumentException("A solver needs at least one thread."),
+            "ParallelRushHourSolver", game1, 0);
+  }
+
+  boolean testStripedStateMap(Tester t) {
+    StripedStateMap map = new StripedStateMap(4);
+    for (long key = 0; key < 100; key++) {
+      map.putIfAbsent(key, key * 2);
+    }
+    return t.checkExpect(map.size(), 100)
+            && t.checkExpect(map.putIfAbsent(3, 0), false)
+            && t.checkExpect(map.get(3), 6L)
+            && t.checkExpect(map.containsKey(100), false);
+  }
+
+  boolean testHeuristics(Tester t) {
+    return t.checkExpect(new ExitDistance().estimate(game1.board), 1)
+            && t.checkExpect(new ExitDistance().estimate(game3.board), 0)
+            && t.checkExpect(new BlockingVehicles().estimate(game1.board), 4)
+            && t.checkExpect(new BlockingVehicles().estimate(game2.board), 3)
+            && t.checkExpect(new BlockingVehicles().estimate(game3.board), 0);
+  }
+
+  boolean testAStarSolver(Tester t) {
+    return t.checkExpect(new AStarSolver(game1, new BlockingVehicles()).solve().unwrap()
+            .fold((move, count) -> count + 1, 0), 15)
+            && t.checkExpect(new AStarSolver(game1, new ExitDistance()).solve().unwrap()
+            .fold((move, count) -> count + 1, 0), 15)
+            && t.checkExpect(new AStarSolver(game2, new BlockingVehicles()).isSolvable(), false)
+            && t.checkExpect(new AStarSolver(game3, new ExitDistance()).solve(),
+            new Some<IList<Move>>(new MT<>()));
+  }
+
+  boolean testIDAStarSolver(Tester t) {
+    IDAStarSolver solver = new IDAStarSolver(game1, new BlockingVehicles());
+    BoardState played = this.playLegally(game1.board, solver.solve().unwrap());
+    return t.checkExpect(solver.solve().unwrap().fold((move, count) -> count + 1, 0), 15)
+            && t.checkExpect(played != null && played.isWon(), true)
+            && t.checkExpect(new IDAStarSolver(game2, new BlockingVehicles()).isSolvable(), false)
+            && t.checkException(new IllegalStateException("Gave up after expanding 10 states."),
+            new IDAStarSolver(game1.board, new BlockingVehicles(), 10, 4), "solve");
+  }
+
+  boolean testStateHeap(Tester t) {
+    StateHeap heap = new StateHeap();
+    heap.add(1, 0, 0, 5);
+    heap.add(2, 0, 1, 3);
+    heap.add(3, 0, 2, 3);
+    heap.add(4, 1, 0, 4);
+    return t.checkExpect(heap.peekMoves(), 2)
+            && t.checkExpect(heap.poll(), 3L)
+            && t.checkExpect(heap.poll(), 2L)
+            && t.checkExpect(heap.peekParent(), 1L)
+            && t.checkExpect(heap.poll(), 4L)
+            && t.checkExpect(heap.poll(), 1L)
+            && t.checkExpect(heap.isEmpty(), true);
+  }
+
+  boolean testParseLevel(Tester t) {
+    RushHourUtils utils = new RushHourUtils();
+    String level = "+------+"
+            + "|      |"
+            + "|  C   |"
+            + "|c     X"
+            + "|t     |"
+            + "|C   c |"
+            + "|    c |"
+            + "+------+";
+    ParsedLevel parsed = utils.parseLevel(level, 20);
+    return t.checkExpect(parsed.vehicles,
+            utils.getVehiclesList(level, level.length(), 0, 0, 0, new MT<>(), 20))
+            && t.checkExpect(parsed.tileGrid, new TileGrid(8, 8, 20, 7, 3))
+            && t.checkExpect(parsed.endX, 7)
+            && t.checkExpect(parsed.endY, 3)
+            && t.checkExpect(parsed.targetVehicle(), new Vehicle(1, 3, 2, 3, Color.RED, 20))
+            && t.checkExpect(new RushHour(parsed, 20).vehicles, parsed.vehicles)
+            && t.checkException(new IllegalArgumentException("The level has no exit."),
+            utils, "parseLevel", "+--+|  |+--+", 20);
+  }
+
+  boolean testParseLargeLevel(Tester t) {
+    RushHourUtils utils = new RushHourUtils();
+    StringBuilder level = new StringBuilder();
+    for (int r = 0; r < 300; r++) {
+      for (int c = 0; c < 300; c++) {
+        boolean edgeRow = r == 0 || r == 299;
+        boolean edgeCol = c == 0 || c == 299;
+        if (r == 3 && c == 299) {
+          level.append('X');
+        } else if (edgeRow && edgeCol) {
+          level.append('+');
+        } else if (edgeRow) {
+          level.append('-');
+        } else if (edgeCol) {
+          level.append('|');
+        } else if (c == 1 && r == 3) {
+          level.append('c');
+        } else {
+          level.append(' ');
+        }
+      }
+    }
+    String text = level.toString();
+    return t.checkExpect(utils.parseLevel(text, 1).tileGrid, new TileGrid(300, 300, 1, 299, 3))
+            && t.checkExpect(utils.getTileGrid(text, 0, 0, 0, 1), new TileGrid(300, 300, 1, 299, 3))
+            && t.checkExpect(utils.getVehiclesList(text, text.length(), 0, 0, 0, new MT<>(), 1),
+            new Cons<>(new Vehicle(1, 3, 2, 3, Color.MAGENTA, 1), new MT<>()))
+            && t.checkExpect(utils.getEndY(text, 0, 0, 0), 3);
+  }
+
+  boolean testLevelCorpus(Tester t) {
+    String level1 = "+------+"
+            + "|      |"
+            + "|  C T |"
+            + "|c    CX"
+            + "|t     |"
+            + "|CCC c |"
+            + "|    c |"
+            + "+------+";
+    String level2 = "+-----+"
+            + "|     |"
+            + "|  C T|"
+            + "|c    X"
+            + "|t    |"
+            + "+-----+";
+    RushHourUtils utils = new RushHourUtils();
+    try {
+      Path file = Files.createTempFile("corpus", ".txt");
+      Files.write(file, (level1 + "\n" + level2 + "\r\n\n" + level1 + "\n" + level2)
+              .getBytes(StandardCharsets.US_ASCII));
+      ArrayList<ParsedLevel> levels = new ArrayList<>();
+      long parallelCount;
+      // a tiny segment size forces the file to be split into one segment per level
+      try (LevelCorpus corpus = new LevelCorpus(file, 20, 80)) {
+        corpus.iterator().forEachRemaining(levels::add);
+        parallelCount = corpus.levels(true).count();
+      }
+      Files.delete(file);
+      return t.checkExpect(levels.size(), 4)
+              && t.checkExpect(parallelCount, 4L)
+              && t.checkExpect(levels.get(0), utils.parseLevel(level1, 20))
+              && t.checkExpect(levels.get(1), utils.parseLevel(level2, 20))
+              && t.checkExpect(levels.get(3), utils.parseLevel(level2, 20));
+    } catch (IOException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  boolean testLevelCodec(Tester t) {
+    RushHourUtils utils = new RushHourUtils();
+    LevelCodec codec = new LevelCodec();
+    String level = "+------+"
+            + "|      |"
+            + "|  C T |"
+            + "|c    CX"
+            + "|t     |"
+            + "|CCC c |"
+            + "|    c |"
+            + "+------+";
+    ParsedLevel parsed = utils.parseLevel(level, 20);
+    byte[] encoded = codec.encode(parsed);
+    ByteBuffer both = ByteBuffer.allocate(2 * encoded.length);
+    codec.encodeInto(parsed, both);
+    codec.encodeInto(parsed, both);
+    both.flip();
+    return t.checkExpect(encoded.length, 9 + 3 * 10)
+            && t.checkExpect(encoded[2], (byte) 1)
+            && t.checkExpect(encoded[3], (byte) 8)
+            && t.checkExpect(encoded[5], (byte) 7)
+            && t.checkExpect(codec.decode(encoded, 20), parsed)
+            && t.checkExpect(codec.decode(both, 20), parsed)
+            && t.checkExpect(codec.decode(both, 20), parsed)
+            && t.checkExpect(codec.decode(codec.encode(game2LevelParsed()), 20), game2LevelParsed())
+            && t.checkException(new IllegalArgumentException("Unknown level format version 9."),
+            codec, "decode", new byte[] {'R', 'H', 9, 0, 0, 0, 0, 0, 0}, 20)
+            && t.checkException(
+            new IllegalArgumentException("Only cars and trucks can be encoded."),
+            codec, "letterFor", new Vehicle(1, 1, 1, 1, Color.RED, 20));
+  }
+
+  ParsedLevel game2LevelParsed() {
+    return new RushHourUtils().parseLevel(
+            "+-----+"
+                    + "|     |"
+                    + "|  C T|"
+                    + "|c    X"
+                    + "|t    |"
+                    + "+-----+",
+            20);
+  }
+
+  boolean testCellIndex(Tester t) {
+    BoardState board = new BoardState(game1.board);
+    BoardState overlapping = new BoardState(
+            new Cons<>(car1, new Cons<>(car2, new MT<>())), gridEx, car2);
+    boolean firstWins = overlapping.ownerOf(2, 2) == 0;
+    overlapping.moveTo(0, 4);
+    boolean handedOver = overlapping.ownerOf(2, 2) == 1;
+    board.moveTo(board.target, 3);
+    return t.checkExpect(game1.board.ownerOf(1, 3), game1.board.target)
+            && t.checkExpect(game1.board.ownerOf(4, 3), -1)
+            && t.checkExpect(game1.board.ownerOf(0, 0), -1)
+            && t.checkExpect(game1.board.ownerOf(-1, 0), -1)
+            && t.checkExpect(game1.board.vehicleAt(5, 4),
+            new Some<>(new Vehicle(5, 2, 5, 4, Color.ORANGE, 20)))
+            && t.checkExpect(game1.board.vehicleAt(4, 4), new None<Vehicle>())
+            && t.checkExpect(game3.board.vehicleAt(5, 3),
+            new Some<>(new Vehicle(5, 2, 5, 4, Color.ORANGE, 20)))
+            && t.checkExpect(firstWins, true)
+            && t.checkExpect(handedOver, true)
+            && t.checkExpect(overlapping.isOccupied(2, 2), true)
+            && t.checkExpect(overlapping.isOccupied(1, 2), false)
+            && t.checkExpect(board.ownerOf(1, 3), -1)
+            && t.checkExpect(board.ownerOf(4, 3), board.target);
+  }
+
+  boolean testOnMouseClickedEmpty(Tester t) {
+    RushHour game = new RushHour(
+            "+------+"
+                    + "|      |"
+                    + "|  C T |"
+                    + "|c    CX"
+                    + "|t     |"
+                    + "|CCC c |"
+                    + "|    c |"
+                    + "+------+",
+            new RushHourUtils(),
+            20);
+    game.onMouseClicked(new Posn(90, 90));
+    boolean empty = !game.currentVehicleClicked.isSome();
+    game.onMouseClicked(new Posn(110, 50));
+    return t.checkExpect(empty, true)
+            && t.checkExpect(game.currentVehicleClicked,
+            new Some<>(new Vehicle(5, 2, 5, 4, Color.ORANGE, 20)));
+  }
+
+  // tests for BoardRenderer
+  boolean testBoardRenderer(Tester t) {
+    RushHour game = new RushHour(this.game2LevelParsed(), 20);
+    BoardRenderer renderer = new BoardRenderer(game.tileGrid, 20);
+    Optional<Vehicle> none = new None<>();
+    WorldScene first = renderer.render(game.board, none);
+    WorldScene second = renderer.render(game.board, none);
+    Optional<Vehicle> highlight = new Some<>(game.board.toVehicle(1));
+    WorldScene highlighted = renderer.render(game.board, highlight);
+    int addedByHighlight = renderer.addedImages;
+    IList<Tile> carTiles = renderer.vehicleTiles.get(1);
+    game.board.moveTo(0, game.board.pos[0] + 1);
+    WorldScene moved = renderer.render(game.board, highlight);
+    // the truck t left the cell it shares with the car c, so that cell is painted white, and t
+    // and c are drawn again: 1 + 3 + 2 images, while the highlighted T is left as it was
+    int addedByMove = renderer.addedImages - addedByHighlight;
+    return t.checkExpect(first == second, true)
+            && t.checkExpect(addedByHighlight, 2)
+            && t.checkExpect(addedByMove, 6)
+            && t.checkExpect(highlighted == second, false)
+            && t.checkExpect(moved == highlighted, false)
+            && t.checkExpect(renderer.render(game.board, highlight) == moved, true)
+            && t.checkExpect(renderer.vehicleTiles.get(1) == carTiles, true)
+            && t.checkExpect(renderer.vehicleTiles.get(0), new Vehicle(2, 4, 4, 4,
+                    Color.green, 20).toTiles())
+            && t.checkExpect(renderer.drawnPos.length, 4)
+            && t.checkExpect(game.tileGrid.makeStaticScene(20), renderer.staticLayer)
+            && t.checkExpect(game.makeScene() == game.makeScene(), true)
+            && this.rendererRebuilds(t, game, renderer, highlight, addedByMove);
+  }
+
+  // moves the truck back and forth, checking the frame is built from the static layer again
+  // before it gains much more than a full frame of images
+  boolean rendererRebuilds(Tester t, RushHour game, BoardRenderer renderer,
+                                    Optional<Vehicle> highlight, int addedByMove) {
+    int maxAdded = 0;
+    boolean rebuilt = false;
+    for (int i = 0; i < 50; i++) {
+      game.board.moveTo(0, game.board.pos[0] + (i % 2 == 0 ? -1 : 1));
+      renderer.render(game.board, highlight);
+      maxAdded = Math.max(maxAdded, renderer.addedImages);
+      rebuilt = rebuilt || renderer.addedImages == 0;
+    }
+    return t.checkExpect(rebuilt, true)
+            && t.checkExpect(maxAdded < renderer.fullImages + addedByMove, true);
+  }
+
+  // tests for ArrayIList, and for the Cons methods on lists too long to recurse over
+  boolean testArrayIList(Tester t) {
+    ArrayIList<Integer> empty = new ArrayIList<>();
+    IList<Integer> oneTwo = empty.append(new Cons<>(1, new Cons<>(2, new MT<>())));
+    IList<Integer> withThree = oneTwo.append(new Cons<>(3, new MT<>()));
+    // withThree took the room after oneTwo, so this append has to copy
+    IList<Integer> withFour = oneTwo.append(new Cons<>(4, new MT<>()));
+    IList<Integer> big = new MT<>();
+    for (int i = 0; i < 200000; i++) {
+      big = new Cons<>(i, big);
+    }
+    IList<Integer> bigArray = empty.append(big).append(big);
+    return t.checkExpect(((ArrayIList<Integer>) oneTwo).toCons(),
+            new Cons<>(1, new Cons<>(2, new MT<>())))
+            && t.checkExpect(((ArrayIList<Integer>) withThree).toCons(),
+            new Cons<>(1, new Cons<>(2, new Cons<>(3, new MT<>()))))
+            && t.checkExpect(((ArrayIList<Integer>) withFour).toCons(),
+            new Cons<>(1, new Cons<>(2, new Cons<>(4, new MT<>()))))
+            && t.checkExpect(((ArrayIList<Integer>) oneTwo).length(), 2)
+            && t.checkExpect(((ArrayIList<Integer>) withThree.map(n -> n * 10)).toCons(),
+            new Cons<>(10, new Cons<>(20, new Cons<>(30, new MT<>()))))
+            && t.checkExpect(((ArrayIList<Integer>) withThree.filter(n -> n != 2)).toCons(),
+            new Cons<>(1, new Cons<>(3, new MT<>())))
+            && t.checkExpect(withFour.fold((n, sum) -> n + sum, 0), 7)
+            && t.checkExpect(empty.length(), 0)
+            && t.checkException(new IndexOutOfBoundsException("No item at 2."),
+            oneTwo, "get", 2)
+            && t.checkExpect(((ArrayIList<Integer>) bigArray).length(), 400000)
+            && t.checkExpect(bigArray.fold((n, count) -> count + 1, 0), 400000)
+            && t.checkExpect(big.map(n -> n + 1).fold((n, sum) -> sum + n, 0L),
+            200000L * 200001 / 2)
+            && t.checkExpect(big.filter(n -> n % 2 == 0).fold((n, count) -> count + 1, 0), 100000)
+            && t.checkExpect(big.append(big).fold((n, count) -> count + 1, 0), 400000)
+            && t.checkExpect(new Cons<>(0, new MT<Integer>()).append(oneTwo).map(n -> n + 1)
+            .fold((n, sum) -> n + sum, 0), 6)
+            && t.checkExpect(gridEx.createBorderTilesHelper(0, 0, 0, 2, Color.RED, 20),
+            new Cons<>(new Tile(0, 0, Color.RED), new Cons<>(new Tile(0, 1, Color.RED),
+                    new Cons<>(new Tile(0, 2, Color.RED), new MT<>()))));
+  }
+
+  // tests for the lazy views of ILazyList
+  boolean testLazyList(Tester t) {
+    IList<Integer> oneTwoThree = new Cons<>(1, new Cons<>(2, new Cons<>(3, new MT<>())));
+    ILazyList<Integer> doubled = oneTwoThree.lazy().map(n -> n * 2);
+    IList<Vehicle> cars = new Cons<>(car1, new Cons<>(car2, new MT<>()));
+    ILazyList<Tile> carTiles = cars.lazy().flatMap(new VehiclesToTileLists());
+    return t.checkExpect(doubled.fold((n, sum) -> sum + n, 0), 12)
+            && t.checkExpect(doubled.filter(n -> n > 2).fold((n, count) -> count + 1, 0), 2)
+            && t.checkExpect(new MT<Integer>().lazy().map(n -> n * 2).fold((n, sum) -> sum + n, 0),
+            0)
+            && t.checkExpect(doubled.concat(oneTwoThree.lazy())
+            .<IList<Integer>>fold((n, list) -> new Cons<>(n, list), new MT<>()),
+            new Cons<>(3, new Cons<>(2, new Cons<>(1, new Cons<>(6, new Cons<>(4,
+                    new Cons<>(2, new MT<>())))))))
+            && t.checkExpect(carTiles.<IList<Tile>>fold((tile, list) -> list.append(new Cons<>(tile,
+                    new MT<>())), new MT<>()),
+            car1.toTiles().append(car2.toTiles()))
+            && t.checkExpect(gridEx.makeScene(carTiles, 20),
+            gridEx.makeScene(car1.toTiles().append(car2.toTiles()), 20));
+  }
+
+  // tests for TileImageCache
+  boolean testTileImageCache(Tester t) {
+    TileImageCache cache = new TileImageCache(2);
+    WorldImage blue = cache.imageFor(Color.BLUE, 20);
+    WorldImage blueAgain = new Tile(3, 4, Color.BLUE).draw(20, cache);
+    WorldImage small = cache.imageFor(Color.BLUE, 10);
+    int missesBefore = cache.misses;
+    cache.imageFor(Color.BLUE, 10);
+    // the least recently used image, blue at 20, is dropped to make room
+    cache.imageFor(Color.YELLOW, 20);
+    boolean blueKept = cache.imageFor(Color.BLUE, 20) == blue;
+    return t.checkExpect(blue == blueAgain, true)
+            && t.checkExpect(blue == small, false)
+            && t.checkExpect(blue, new RectangleImage(20, 20, OutlineMode.SOLID, Color.BLUE)
+            .movePinhole(-10, -10))
+            && t.checkExpect(cache.misses, 4)
+            && t.checkExpect(missesBefore, 2)
+            && t.checkExpect(blueKept, false)
+            && t.checkExpect(cache.size(), 2)
+            && t.checkExpect(
+            new Tile(0, 0, Color.RED).draw(20) == new Tile(1, 1, Color.RED).draw(20), true)
+            && t.checkExpect(TileImageCache.key(Color.BLUE, 20)
+            == TileImageCache.key(Color.BLUE, 10), false)
+            && t.checkConstructorException(
+            new IllegalArgumentException("A cache needs room for at least one image."),
+            "TileImageCache", 0);
+  }
+
+  // tests for ThumbnailRenderer
+  boolean testThumbnailRenderer(Tester t) {
+    ArrayList<String> levels = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      levels.add(SolverBenchmark.EXAMPLE_LEVELS[i % 2]);
+    }
+    levels.add("not a level");
+    try {
+      Path dir = Files.createTempDirectory("thumbnails");
+      ThumbnailRenderer renderer = new ThumbnailRenderer(dir, 10, 2, 4);
+      BufferedImage image = renderer.render(this.game2LevelParsed());
+      ThumbnailReport report = renderer.renderAll(levels.stream());
+      Stream<String> broken = levels.stream().limit(12).map(level -> {
+        if (level.equals(levels.get(11))) {
+          throw new IllegalStateException("The level source broke.");
+        }
+        return level;
+      });
+      boolean threwAndStopped = false;
+      try {
+        renderer.renderAll(broken);
+      } catch (IllegalStateException e) {
+        threwAndStopped = e.getMessage().equals("The level source broke.")
+                && Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.getName().startsWith("thumbnail-"));
+      }
+      BufferedImage written = ImageIO.read(renderer.fileFor(19).toFile());
+      boolean lastWritten = Files.exists(renderer.fileFor(20));
+      for (int i = 0; i < report.rendered; i++) {
+        Files.delete(renderer.fileFor(i));
+      }
+      Files.delete(dir);
+      return t.checkExpect(image.getWidth(), 70)
+              && t.checkExpect(image.getHeight(), 60)
+              // a border tile, the green truck, the exit and an empty cell
+              && t.checkExpect(image.getRGB(5, 5), Color.DARK_GRAY.getRGB())
+              && t.checkExpect(image.getRGB(15, 45), Color.green.getRGB())
+              && t.checkExpect(image.getRGB(65, 35), Color.WHITE.getRGB())
+              && t.checkExpect(image.getRGB(15, 15), Color.WHITE.getRGB())
+              && t.checkExpect(report.rendered, 20L)
+              && t.checkExpect(threwAndStopped, true)
+              && t.checkExpect(report.failed, 1L)
+              && t.checkExpect(report.firstFailure.getMessage(), "The level has no exit.")
+              && t.checkExpect(lastWritten, false)
+              && t.checkExpect(written.getWidth(), 70)
+              && t.checkExpect(written.getRGB(15, 45), Color.green.getRGB())
+              && t.checkConstructorException(
+              new IllegalArgumentException("A renderer needs at least one thread."),
+              "ThumbnailRenderer", dir, 10, 0, 4);
+    } catch (IOException | InterruptedException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  // tests for MoveGenerator
+  boolean testMoveGenerator(Tester t) {
+    BoardState board = this.game2LevelParsed().toBoardState();
+    MoveGenerator generator = new MoveGenerator(board);
+    int[] moves = new int[generator.maxMoves()];
+    int count = generator.generate(moves);
+    int[] expected = {MoveGenerator.encode(0, 2), MoveGenerator.encode(2, 1),
+        MoveGenerator.encode(3, 1)};
+    // once the truck has moved right, its only move is back
+    board.moveTo(0, 2);
+    int[] afterMove = new int[generator.maxMoves()];
+    int afterCount = generator.generate(afterMove);
+    return t.checkExpect(generator.maxMoves(), 16)
+            && t.checkExpect(count, 3)
+            && t.checkExpect(Arrays.copyOf(moves, count), expected)
+            && t.checkExpect(MoveGenerator.vehicleOf(moves[1]), 2)
+            && t.checkExpect(MoveGenerator.positionOf(moves[1]), 1)
+            && t.checkExpect(afterCount, 3)
+            && t.checkExpect(Arrays.copyOf(afterMove, afterCount),
+            new int[] {MoveGenerator.encode(0, 1), MoveGenerator.encode(2, 1),
+                MoveGenerator.encode(3, 1)})
+            && t.checkExpect(generator.low[0], 1)
+            && t.checkExpect(generator.high[0], 2)
+            && t.checkExpect(generator.low[1], 1)
+            && t.checkExpect(generator.high[1], 1);
+  }
+
+  // tests for BoardState.slideTo, findOverlaps and checkNoOverlaps
+  boolean testOverlaps(Tester t) {
+    BoardState board = this.game2LevelParsed().toBoardState();
+    // the car next to the exit is blocked by the vertical car in front of it
+    boolean carMoved = board.slideTo(1, 2);
+    boolean truckMoved = board.slideTo(0, 2);
+    boolean truckPastTruck = board.slideTo(0, 3);
+    boolean offBoard = board.slideTo(2, 0);
+    BoardState crossing = new BoardState(new Cons<>(truck1, new Cons<>(car1,
+            new Cons<>(truck2, new MT<>()))), gridEx, new Vehicle(4, 3, 5, 3, Color.RED, 20));
+    String overlapping = "+-----+"
+            + "|     |"
+            + "|  C T|"
+            + "|c t  X"
+            + "|t    |"
+            + "+-----+";
+    return t.checkExpect(carMoved, false)
+            && t.checkExpect(truckMoved, true)
+            && t.checkExpect(board.pos[0], 2)
+            && t.checkExpect(board.isOccupied(1, 4), false)
+            && t.checkExpect(board.isOccupied(4, 4), true)
+            && t.checkExpect(truckPastTruck, false)
+            && t.checkExpect(offBoard, false)
+            && t.checkExpect(board.findOverlaps(), new MT<Overlap>())
+            && t.checkExpect(game3.board.findOverlaps(),
+            new Cons<>(new Overlap(2, 4, 5, 3), new MT<>()))
+            && t.checkExpect(crossing.findOverlaps(),
+            new Cons<>(new Overlap(0, 1, 1, 2),
+                    new Cons<>(new Overlap(1, 2, 1, 2),
+                            new Cons<>(new Overlap(0, 2, 1, 2),
+                                    new Cons<>(new Overlap(0, 2, 1, 3), new MT<>())))))
+            && t.checkException(new IllegalArgumentException("Vehicles 0 and 1 overlap at (1, 2)."),
+            crossing, "checkNoOverlaps")
+            && t.checkConstructorException(
+            new IllegalArgumentException("Vehicles 1 and 3 overlap at (5, 3)."),
+            "RushHour", new RushHourUtils().parseLevel(overlapping, 20), 20);
+  }
+
+  // tests for ZobristHasher and StateMaps that place states by it
+  boolean testZobristHasher(Tester t) {
+    BoardState board = this.game2LevelParsed().toBoardState();
+    ZobristHasher zobrist = new ZobristHasher(board);
+    long start = board.pack();
+    long startHash = zobrist.hash(board);
+    board.moveTo(0, 2);
+    long movedHash = zobrist.hash(board);
+    StateMap map = new StateMap(2, zobrist);
+    // enough states to make the map grow a few times
+    for (int p = 1; p <= 2; p++) {
+      for (int q = 1; q <= 2; q++) {
+        for (int r = 1; r <= 3; r++) {
+          board.moveTo(0, p);
+          board.moveTo(2, q);
+          board.moveTo(3, r);
+          map.putIfAbsent(board.pack(), r, (int) zobrist.hash(board));
+        }
+      }
+    }
+    return t.checkExpect(zobrist.hashPacked(start), startHash)
+            && t.checkExpect(zobrist.slide(startHash, 0, 1, 2), movedHash)
+            && t.checkExpect(zobrist.slide(movedHash, 0, 2, 1), startHash)
+            && t.checkExpect(movedHash == startHash, false)
+            && t.checkExpect(new ZobristHasher(board).table, zobrist.table)
+            && t.checkExpect(new ZobristHasher(board, 7).table[0][1] == zobrist.table[0][1], false)
+            && t.checkExpect(map.size(), 12)
+            && t.checkExpect(map.containsKey(start), true)
+            && t.checkExpect(map.containsKey(start, (int) startHash), true)
+            && t.checkExpect(map.get(board.pack()), 3L)
+            && t.checkExpect(map.putIfAbsent(start, 0), false);
+  }
+
+  boolean testCanonicalKey(Tester t) {
+    CanonicalKey keys = new CanonicalKey();
+    RushHourUtils utils = new RushHourUtils();
+    ParsedLevel level = utils.parseLevel(
+            "+-----+"
+                    + "|  C  |"
+                    + "|    T|"
+                    + "|c    X"
+                    + "|     |"
+                    + "|t    |"
+                    + "+-----+",
+            20);
+    String mirror = "+-----+"
+            + "|t    |"
+            + "|    T|"
+            + "|c    X"
+            + "|  C  |"
+            + "|     |"
+            + "+-----+";
+    IList<Vehicle> reversed = level.vehicles.<IList<Vehicle>>fold(
+            (vehicle, list) -> new Cons<>(vehicle, list),
+            new MT<>());
+    BoardState reordered = new BoardState(reversed, level.tileGrid, level.targetVehicle());
+    BoardState moved = level.toBoardState();
+    moved.moveTo(0, 2);
+    Optional<IList<Move>> solution = new CanonicalSolver(game1).solve();
+    BoardState played = solution.unwrap().fold((move, board) -> {
+      board.moveTo(move.vehicle, move.to);
+      return board;
+    }, new BoardState(game1.board));
+    return t.checkExpect(LevelStrings.mirrorLevel(level), mirror)
+            && t.checkExpect(keys.ofLevel(utils.parseLevel(mirror, 20)), keys.ofLevel(level))
+            && t.checkExpect(keys.of(reordered), keys.ofLevel(level))
+            && t.checkExpect(keys.of(moved) == keys.ofLevel(level), false)
+            && t.checkExpect(keys.ofLevel(game2LevelParsed()) == keys.ofLevel(level), false)
+            && t.checkExpect(solution.unwrap().fold((move, count) -> count + 1, 0), 15)
+            && t.checkExpect(played.isWon(), true)
+            && t.checkExpect(new CanonicalSolver(game2).isSolvable(), false);
+  }
+
+  boolean testOffHeapStateMap(Tester t) {
+    OffHeapStateMap map = new OffHeapStateMap(16, 1 << 20, null);
+    // enough states to make the map grow a few times
+    for (long key = 0; key < 100; key++) {
+      map.putIfAbsent(key * 7, key);
+    }
+    boolean addedEmpty = map.putIfAbsent(StateMap.EMPTY, 5);
+    OffHeapStateMap small = new OffHeapStateMap(256);
+    for (long key = 0; key < 12; key++) {
+      small.putIfAbsent(key, key);
+    }
+    RushHourSolver solver = new RushHourSolver(game1.board, 1 << 20);
+    Optional<IList<Move>> solution = solver.solve();
+    RushHourSolver onHeap = new RushHourSolver(game1.board);
+    onHeap.solve();
+    return t.checkExpect(map.size(), 101)
+            && t.checkExpect(map.bytes(), 256L * 16)
+            && t.checkExpect(map.get(70), 10L)
+            && t.checkExpect(map.containsKey(69), false)
+            && t.checkExpect(map.putIfAbsent(70, 0), false)
+            && t.checkExpect(addedEmpty, true)
+            && t.checkExpect(map.get(StateMap.EMPTY), 5L)
+            && t.checkExpect(map.putIfAbsent(StateMap.EMPTY, 6), false)
+            && t.checkException(new IllegalArgumentException("No such state in the map."),
+            map, "get", 69L)
+            && t.checkExpect(small.bytes(), 256L)
+            && t.checkException(new IllegalStateException("The off-heap state map is full: 12 "
+                    + "states fill its 256 bytes, and growing would go over its cap of 256 bytes."),
+            small, "putIfAbsent", 12L, 12L)
+            && t.checkExpect(small.size(), 12)
+            && t.checkConstructorException(
+            new IllegalArgumentException("An off-heap state map needs at least 256 bytes."),
+            "OffHeapStateMap", 255L)
+            && t.checkExpect(solution.unwrap().fold((move, count) -> count + 1, 0), 15)
+            && t.checkExpect(solver.visited, onHeap.visited);
+  }
+
+  boolean testExternalMemorySearch(Tester t) {
+    try {
+      Path dir = Files.createTempDirectory("search");
+      Path unsolvable = Files.createTempDirectory("search");
+      // a few states per run, so every layer is merged from several runs
+      ExternalMemorySearch interrupted = new ExternalMemorySearch(game1.board, dir, 64);
+      for (int i = 0; i < 5; i++) {
+        interrupted.step();
+      }
+      ExternalMemorySearch resumed = new ExternalMemorySearch(game1.board, dir, 64);
+      int resumedLayers = resumed.layers.size;
+      Optional<IList<Move>> solution = resumed.solve();
+      BoardState played = solution.unwrap().fold((move, board) -> {
+        board.moveTo(move.vehicle, move.to);
+        return board;
+      }, new BoardState(game1.board));
+      long states = resumed.explore();
+      Optional<IList<Move>> none = new ExternalMemorySearch(game2.board, unsolvable, 64).solve();
+      // with at most four files open, the dozens of runs of a layer take several merge passes
+      Path narrowDir = Files.createTempDirectory("search");
+      ExternalMemorySearch narrow = new ExternalMemorySearch(game1.board, narrowDir, 8, 4);
+      Optional<IList<Move>> narrowSolution = narrow.solve();
+      long narrowStates = narrow.explore();
+      // the same start and vehicles, but an exit on another row
+      Path checkpoint = narrow.checkpointFile();
+      Files.write(checkpoint, new String(Files.readAllBytes(checkpoint), "ISO-8859-1")
+              .replaceAll("exitRow=\\d+", "exitRow=1").getBytes("ISO-8859-1"));
+      boolean checks = t.checkExpect(resumedLayers, 6)
+              && t.checkExpect(narrowSolution.unwrap().fold((move, count) -> count + 1, 0), 15)
+              && t.checkExpect(narrowStates, states)
+              && t.checkConstructorException(new IllegalStateException(
+              "The checkpoint in " + narrowDir + " is for a different level."),
+              "ExternalMemorySearch", game1.board, narrowDir, 8, 4)
+              && t.checkConstructorException(new IllegalArgumentException(
+              "A merge needs to read at least two runs at once."),
+              "ExternalMemorySearch", game1.board, narrowDir, 8, 1)
+              && t.checkExpect(solution.unwrap().fold((move, count) -> count + 1, 0), 15)
+              && t.checkExpect(played.isWon(), true)
+              && t.checkExpect(states, (long) DistanceTable.reachableFrom(game1.board).length)
+              && t.checkExpect(resumed.isFinished(), true)
+              && t.checkExpect(resumed.step(), false)
+              && t.checkExpect(resumed.distanceOf(game1.board.pack()), 0)
+              && t.checkExpect(resumed.distanceOf(played.pack()), 15)
+              && t.checkExpect(resumed.distanceOf(0L), -1)
+              && t.checkExpect(none, new None<IList<Move>>())
+              && t.checkConstructorException(new IllegalStateException(
+              "The checkpoint in " + dir + " is for a different level."),
+              "ExternalMemorySearch", game2.board, dir, 64)
+              && t.checkConstructorException(
+              new IllegalArgumentException("A run needs room for at least one state."),
+              "ExternalMemorySearch", game1.board, dir, 0);
+      for (Path searched : new Path[] {dir, unsolvable, narrowDir}) {
+        for (File file : searched.toFile().listFiles()) {
+          Files.delete(file.toPath());
+        }
+        Files.delete(searched);
+      }
+      return checks;
+    } catch (IOException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  boolean testDistanceTable(Tester t) {
+    DistanceTable table = new DistanceTable(game1);
+    DistanceTable stuck = new DistanceTable(game2);
+    // following the hints from the start wins in the fewest moves
+    BoardState board = new BoardState(game1.board);
+    int hints = 0;
+    Optional<Move> hint = table.nextMove(board);
+    while (hint.isSome()) {
+      board.moveTo(hint.unwrap().vehicle, hint.unwrap().to);
+      hints++;
+      hint = table.nextMove(board);
+    }
+    try {
+      Path file = Files.createTempFile("distances", ".bin");
+      table.save(file);
+      DistanceTable loaded = DistanceTable.load(file, game1.board);
+      Path level = Files.createTempFile("level", ".bin");
+      Files.write(level, new LevelCodec().encode(this.game2LevelParsed()));
+      boolean checks = t.checkExpect(table.size(), DistanceTable.reachableFrom(game1.board).length)
+              && t.checkExpect(table.distanceOf(game1.board.pack()), 15)
+              && t.checkExpect(table.distanceOf(0L), -1)
+              && t.checkExpect(hints, 15)
+              && t.checkExpect(board.isWon(), true)
+              && t.checkExpect(table.distanceOf(board.pack()), 0)
+              && t.checkExpect(stuck.size(), 20)
+              && t.checkExpect(stuck.distanceOf(game2.board.pack()), DistanceTable.UNSOLVABLE)
+              && t.checkExpect(stuck.nextMove(game2.board), new None<Move>())
+              && t.checkExpect(loaded.states, table.states)
+              && t.checkExpect(loaded.distances, table.distances)
+              && t.checkExpect(loaded.nextMove(game1.board).isSome(), true)
+              && t.checkException(
+              new IllegalArgumentException("The distance table is for a different level."),
+              stuck, "load", file, game2.board)
+              && t.checkException(new IllegalArgumentException("Not a distance table."),
+              stuck, "load", level, game2.board);
+      Files.delete(file);
+      Files.delete(level);
+      return checks;
+    } catch (IOException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  boolean testSolutionCache(Tester t) {
+    RushHourUtils utils = new RushHourUtils();
+    String level = "+-----+"
+            + "|     |"
+            + "|     |"
+            + "|c  C X"
+            + "|     |"
+            + "|  t  |"
+            + "+-----+";
+    ParsedLevel parsed = utils.parseLevel(level, 20);
+    BoardState mirror = utils.parseLevel(LevelStrings.mirrorLevel(parsed), 20)
+            .toBoardState();
+    try {
+      Path file = Files.createTempFile("solutions", ".bin");
+      SolutionCache cache = new SolutionCache(file, 2);
+      int first = cache.solve(game1.board).unwrap().fold((move, count) -> count + 1, 0);
+      int again = cache.solve(game1.board).unwrap().fold((move, count) -> count + 1, 0);
+      Optional<IList<Move>> plain = cache.solve(parsed.toBoardState());
+      // the mirror image is answered from the plain level's solution, moving the car down
+      Optional<IList<Move>> mirrored = cache.solve(mirror);
+      BoardState played = mirrored.unwrap().fold((move, board) -> {
+        board.moveTo(move.vehicle, move.to);
+        return board;
+      }, new BoardState(mirror));
+      Optional<IList<Move>> stuck = cache.solve(game2.board);
+      Optional<IList<Move>> stuckAgain = cache.solve(game2.board);
+      int hitsBeforeRestart = cache.memoryHits;
+      cache.close();
+      SolutionCache reopened = new SolutionCache(file, 2);
+      int restarted = reopened.solve(game1.board).unwrap().fold((move, count) -> count + 1, 0);
+      Path notCache = Files.createTempFile("level", ".bin");
+      Files.write(notCache, new LevelCodec().encode(this.game2LevelParsed()));
+      Path text = Files.createTempFile("notes", ".txt");
+      Files.write(text, "notes\n".getBytes("US-ASCII"));
+      boolean textRejected = false;
+      try {
+        new SolutionCache(text, 2).close();
+      } catch (IllegalArgumentException e) {
+        textRejected = e.getMessage().equals("Not a solution cache.");
+      }
+      boolean checks = t.checkExpect(first, 15)
+              && t.checkExpect(again, 15)
+              && t.checkExpect(plain.unwrap().fold((move, count) -> count + 1, 0), 2)
+              && t.checkExpect(mirrored.unwrap().fold((move, count) -> count + 1, 0), 2)
+              && t.checkExpect(played.isWon(), true)
+              && t.checkExpect(played.pos[played.ownerOf(4, 4)], 4)
+              && t.checkExpect(stuck, new None<IList<Move>>())
+              && t.checkExpect(stuckAgain, new None<IList<Move>>())
+              && t.checkExpect(hitsBeforeRestart, 3)
+              && t.checkExpect(cache.misses, 3)
+              && t.checkExpect(reopened.size(), 3)
+              && t.checkExpect(restarted, 15)
+              && t.checkExpect(reopened.diskHits, 1)
+              && t.checkExpect(reopened.hitRate(), 1.0)
+              && t.checkConstructorException(new IllegalArgumentException("Not a solution cache."),
+              "SolutionCache", notCache, 2)
+              // a file that is not a cache is left as it was
+              && t.checkExpect(textRejected, true)
+              && t.checkExpect(Files.size(text), 6L)
+              && t.checkConstructorException(
+              new IllegalArgumentException("A cache needs room for at least one solution."),
+              "SolutionCache", file, 0);
+      reopened.close();
+      Files.delete(file);
+      Files.delete(notCache);
+      Files.delete(text);
+      return checks;
+    } catch (IOException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  boolean testDifficultyAnalyzer(Tester t) {
+    DifficultyAnalyzer analyzer = new DifficultyAnalyzer(2, 1000, 2);
+    LevelDifficulty hard = new DifficultyAnalyzer(1, 1 << 20, 1)
+            .analyze(7, SolverBenchmark.EXAMPLE_LEVELS[0]);
+    LevelDifficulty stuck = analyzer.analyze(1, SolverBenchmark.EXAMPLE_LEVELS[1]);
+    LevelDifficulty tooBig = analyzer.analyze(0, SolverBenchmark.EXAMPLE_LEVELS[0]);
+    LevelDifficulty broken = analyzer.analyze(2, "not a level");
+    stuck.millis = 0;
+    broken.millis = 0;
+    StringWriter csv = new StringWriter();
+    StringWriter json = new StringWriter();
+    try {
+      long count = analyzer.analyzeAll(Stream.of(SolverBenchmark.EXAMPLE_LEVELS[1],
+              SolverBenchmark.EXAMPLE_LEVELS[1], "not a level"), csv, false);
+      analyzer.analyzeAll(Stream.of(SolverBenchmark.EXAMPLE_LEVELS[1]), json, true);
+      // many more levels than the window of two, still written in order
+      StringWriter many = new StringWriter();
+      new DifficultyAnalyzer(2, 1000, 2).analyzeAll(Stream.generate(
+              () -> SolverBenchmark.EXAMPLE_LEVELS[1]).limit(40), many, false);
+      String[] manyRows = many.toString().split("\n");
+      boolean inOrder = manyRows.length == 41;
+      for (int i = 1; i < manyRows.length; i++) {
+        inOrder = inOrder && manyRows[i].startsWith((i - 1) + ",");
+      }
+      return t.checkExpect(hard.index, 7L)
+              && t.checkExpect(hard.moves, 15)
+              && t.checkExpect(hard.states, 11344)
+              && t.checkExpect(hard.solvedStates, 4173)
+              && t.checkExpect(hard.error, null)
+              && t.checkExpect(stuck.toCsv(), "1,-1,20,0,4.400,0,")
+              && t.checkExpect(broken.toCsv(), "2,-1,0,0,0.000,0,\"The level has no exit.\"")
+              && t.checkExpect(broken.toJson(), "{\"level\": 2, \"moves\": -1, \"states\": 0, "
+                      + "\"solved_states\": 0, \"branching\": 0.000, \"millis\": 0, "
+                      + "\"error\": \"The level has no exit.\"}")
+              && t.checkExpect(tooBig.error, "The level has more than 1000 reachable states.")
+              && t.checkExpect(count, 3L)
+              && t.checkExpect(inOrder, true)
+              && t.checkExpect(csv.toString().split("\n").length, 4)
+              && t.checkExpect(csv.toString().startsWith(DifficultyAnalyzer.CSV_HEADER + "\n0,"),
+              true)
+              && t.checkExpect(json.toString().startsWith("[\n  {\"level\": 0, \"moves\": -1"),
+              true)
+              && t.checkExpect(json.toString().endsWith("null}\n]\n"), true)
+              && t.checkConstructorException(
+              new IllegalArgumentException("An analyzer needs at least one thread."),
+              "DifficultyAnalyzer", 0, 1000, 2)
+              && t.checkConstructorException(
+              new IllegalArgumentException("The window needs room for at least one level."),
+              "DifficultyAnalyzer", 2, 1000, 0);
+    } catch (IOException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  boolean testLevelGenerator(Tester t) {
+    BoardState example = LevelStrings.boardFor(SolverBenchmark.EXAMPLE_LEVELS[0]);
+    BoardState copy = LevelStrings.boardFor(LevelStrings.levelOf(example));
+    try {
+      GeneratorReport report = new LevelGenerator(6, 12, 2, 0, 1 << 20).generate(60000, 3, 7);
+      GeneratorReport again = new LevelGenerator(6, 12, 2, 0, 1 << 20).generate(60000, 3, 7);
+      GeneratedLevel hardest = report.levels.get(0);
+      Optional<IList<Move>> solution = new RushHourSolver(
+              LevelStrings.boardFor(hardest.level)).solve();
+      long counted = 0;
+      for (long tries : report.histogram) {
+        counted += tries;
+      }
+      ArrayList<String> levels = new ArrayList<>();
+      ArrayList<String> levelsAgain = new ArrayList<>();
+      for (GeneratedLevel level : report.levels) {
+        levels.add(level.level);
+      }
+      for (GeneratedLevel level : again.levels) {
+        levelsAgain.add(level.level);
+      }
+      return t.checkExpect(copy.pack(), example.pack())
+              && t.checkExpect(copy.vehicleCount(), example.vehicleCount())
+              && t.checkExpect(report.tried, 6L)
+              && t.checkExpect(counted <= 6, true)
+              && t.checkExpect(report.levels.size() > 0, true)
+              && t.checkExpect(report.levels.get(report.levels.size() - 1).moves <= hardest.moves,
+              true)
+              && t.checkExpect(solution.unwrap().fold((move, moves) -> moves + 1, 0),
+              hardest.moves)
+              && t.checkExpect(levelsAgain, levels)
+              && t.checkConstructorException(
+              new IllegalArgumentException("A generator needs at least one thread."),
+              "LevelGenerator", 6, 12, 0, 0, 1000);
+    } catch (InterruptedException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  boolean testLevelStrings(Tester t) {
+    String level = LevelStrings.randomLevel(new Random(7), 4, 3);
+    BoardState board = LevelStrings.boardFor(level);
+    ParsedLevel parsed = this.game2LevelParsed();
+    return t.checkExpect(LevelStrings.join(LevelStrings.emptyCells(4, 3, 3, 1)), "+--+|  X+--+")
+            && t.checkExpect(level.length(), 36)
+            && t.checkExpect(board.exitCol, 5)
+            && t.checkExpect(board.exitRow, 3)
+            && t.checkExpect(board.pos[board.target], 1)
+            && t.checkExpect(LevelStrings.levelOf(board), level)
+            && t.checkExpect(LevelStrings.mirrorLevel(new RushHourUtils().parseLevel(
+                    LevelStrings.mirrorLevel(parsed), 20)),
+            LevelStrings.levelOf(parsed.toBoardState()))
+            && t.checkExpect(LevelStrings.letterFor(false, 3), 'T')
+            && t.checkException(
+            new IllegalArgumentException("Only cars and trucks can be encoded."),
+            new LevelStrings(), "letterFor", true, 4);
+  }
+
+  boolean testLayoutEnumerator(Tester t) {
+    try {
+      Path dir = Files.createTempDirectory("layouts");
+      LayoutEnumerator first = new LayoutEnumerator(4, dir, 4, 0);
+      int before = first.enumerate(2, 5);
+      EnumerationSummary partial = first.summary();
+      // a chunk left half written by a crash is thrown away and done again
+      Files.write(dir.resolve("chunk-00007.tmp"), "1,2".getBytes());
+      int after = new LayoutEnumerator(4, dir, 4, 0).enumerate(1, Integer.MAX_VALUE);
+      EnumerationSummary summary = first.summary();
+      Optional<IList<Move>> hardest = new RushHourSolver(
+              LevelStrings.boardFor(summary.hardestLevel)).solve();
+      // every recorded level parses back with the target car in its place, and is won in the
+      // recorded number of moves
+      boolean levelsSolve = true;
+      for (int chunk = 0; chunk < first.chunks(); chunk++) {
+        for (String line : Files.readAllLines(first.chunkFile(chunk))) {
+          if (!line.startsWith("# ")) {
+            String[] fields = line.split(",", 4);
+            BoardState board = LevelStrings.boardFor(fields[3]);
+            Optional<IList<Move>> solution = new RushHourSolver(board).solve();
+            levelsSolve = levelsSolve && board.pos[board.target] == 1
+                    && solution.unwrap().fold((move, moves) -> moves + 1, 0)
+                    == Integer.parseInt(fields[2]);
+          }
+        }
+      }
+      boolean checks = t.checkExpect(first.sequences.size(), 4)
+              && t.checkExpect(first.chunks(), 16)
+              && t.checkExpect(before, 5)
+              && t.checkExpect(partial.chunksDone, 5)
+              && t.checkExpect(partial.isFinished(), false)
+              && t.checkExpect(after, 11)
+              && t.checkExpect(summary.isFinished(), true)
+              && t.checkExpect(Files.exists(dir.resolve("chunk-00007.tmp")), false)
+              && t.checkExpect(summary.layouts, 2149L)
+              // the same count as placing every car and truck on the board one at a time
+              && t.checkExpect(summary.positions, 19909L)
+              && t.checkExpect(summary.clusters, 2450L)
+              && t.checkExpect(summary.unsolvable, 863L)
+              && t.checkExpect(summary.recorded, 262L)
+              && t.checkExpect(levelsSolve, true)
+              && t.checkExpect(summary.hardestMoves, 7)
+              && t.checkExpect(hardest.unwrap().fold((move, moves) -> moves + 1, 0), 7)
+              && t.checkConstructorException(new IllegalArgumentException(
+              "The enumeration in " + dir + " was started with other settings."),
+              "LayoutEnumerator", 4, dir, 8, 0)
+              && t.checkConstructorException(new IllegalArgumentException(
+              "A chunk needs at least one unit of work."), "LayoutEnumerator", 4, dir, 0, 0);
+      for (File file : dir.toFile().listFiles()) {
+        Files.delete(file.toPath());
+      }
+      Files.delete(dir);
+      return checks && this.crowdedLayouts(t);
+    } catch (IOException | InterruptedException e) {
+      return t.checkExpect(e, null);
+    }
+  }
+
+  // a 7 x 7 unit whose rows each hold two cars and a truck has more vehicles than a packed
+  // state holds, so its layout is skipped and counted; and a worker that throws fails the run
+  boolean crowdedLayouts(Tester t) throws IOException, InterruptedException {
+    Path dir = Files.createTempDirectory("layouts");
+    LayoutEnumerator crowded = new LayoutEnumerator(7, dir, 1, 0);
+    int full = 0;
+    while (!Arrays.equals(crowded.sequences.get(full), new int[] {2, 2, 3})) {
+      full++;
+    }
+    int count = crowded.sequences.size();
+    int unit = 0;
+    for (int r = 0; r < 6; r++) {
+      unit = unit * count + full;
+    }
+    long[] totals = new long[5];
+    StringWriter out = new StringWriter();
+    crowded.enumerateUnit(unit, out, totals);
+    Path failingDir = Files.createTempDirectory("layouts");
+    LayoutEnumerator failing = new LayoutEnumerator(4, failingDir, 4, 0) {
+      void enumerateChunk(int chunk) {
+        throw new IllegalStateException("The chunk could not be done.");
+      }
+    };
+    String thrown = "";
+    try {
+      failing.enumerate(2, Integer.MAX_VALUE);
+    } catch (IllegalStateException e) {
+      thrown = e.getMessage();
+    }
+    for (Path made : new Path[] {dir, failingDir}) {
+      for (File file : made.toFile().listFiles()) {
+        Files.delete(file.toPath());
+      }
+      Files.delete(made);
+    }
+    return t.checkExpect(totals[4], 1L)
+            && t.checkExpect(totals[0], 0L)
+            && t.checkExpect(out.toString(), "")
+            && t.checkExpect(thrown, "The chunk could not be done.");
+  }
 }
@@ -0,0 +1,155 @@
+// Represents sliding one vehicle of a BoardState from one position to another.
+class Move {
+  // the index of the vehicle in the BoardState
+  int vehicle;
+  int from;
+  int to;
+
+  Move(int vehicle, int from, int to) {
+    this.vehicle = vehicle;
+    this.from = from;
+    this.to = to;
+  }
+}
+
+// Finds a shortest sequence of moves that gets the target vehicle of a level to the exit.
+// Sliding a vehicle any number of free cells counts as one move. The search is a breadth-first
+// search over packed board states (see BoardState.pack), remembering the state each one was
+// first reached from in a StateMap, so no Vehicle or list is built per state. The StateMap
+// places states by their Zobrist hash, which is updated move by move rather than recomputed.
+// Given a number of bytes, the solver keeps its states in an OffHeapStateMap instead, for
+// boards with more states than the heap can hold.
+//
+// A packed state has to fit in a long, so only boards whose vehicles' positions take 64 bits or
+// fewer can be searched: each position takes enough bits to count the cells along the longer
+// side of the grid, so that is 21 vehicles on a grid up to 8 cells across (walls included),
+// 16 up to 16 cells, 12 up to 32 cells and so on. A valid level with more vehicles than that
+// cannot be solved at all, and making a solver for it throws an IllegalArgumentException. The
+// other searches built on packed states (the subclasses, DistanceTable, ExternalMemorySearch and
+// SolutionCache) have the same limit.
+class RushHourSolver {
+  BoardState board;
+  long start;
+  // how many states the last search took off its queue
+  int expanded;
+  // how many states the last breadth-first search recorded as reached
+  int visited;
+  // the most direct memory the search may keep its states in, or 0 to keep them on the heap
+  long offHeapBytes;
+
+  RushHourSolver(BoardState board) {
+    this(board, 0);
+  }
+
+  RushHourSolver(BoardState board, long offHeapBytes) {
+    if (!board.fitsInLong()) {
+      throw new IllegalArgumentException("This board has " + board.vehicleCount()
+              + " vehicles of " + board.bits + " bits each, but a solver can only search boards"
+              + " whose vehicles fit in 64 bits (" + 64 / board.bits + " vehicles here).");
+    }
+    this.board = new BoardState(board);
+    this.start = this.board.pack();
+    this.offHeapBytes = offHeapBytes;
+  }
+
+  RushHourSolver(RushHour game) {
+    this(game.board);
+  }
+
+  RushHourSolver(IList<Vehicle> vehicles, TileGrid grid, Vehicle targetVehicle) {
+    this(new BoardState(vehicles, grid, targetVehicle));
+  }
+
+  /*
+  F:
+  board -- BoardState
+  start -- long
+  expanded -- int
+  visited -- int
+  offHeapBytes -- long
+  M:
+  solve -- Optional<IList<Move>>
+  isSolvable -- boolean
+  makeParents -- IHashedStateMap
+  pathTo -- IList<Move>
+  MoF:
+  board.pack -- long
+  board.unpack -- void
+  board.withPosition -- long
+   */
+
+  // finds a shortest list of moves that wins the level, or None if it cannot be won
+  Optional<IList<Move>> solve() {
+    ZobristHasher zobrist = new ZobristHasher(this.board);
+    IHashedStateMap parents = this.makeParents(zobrist);
+    // the Zobrist hash of every queued state is queued with it, so the hash of each state
+    // reached from it is one update away
+    LongQueue queue = new LongQueue();
+    LongQueue hashes = new LongQueue();
+    MoveGenerator generator = new MoveGenerator(this.board);
+    int[] moves = new int[generator.maxMoves()];
+    this.board.unpack(this.start);
+    long startHash = zobrist.hash(this.board);
+    parents.putIfAbsent(this.start, this.start, (int) startHash);
+    queue.add(this.start);
+    hashes.add(startHash);
+    this.expanded = 0;
+
+    while (!queue.isEmpty()) {
+      long state = queue.poll();
+      long hash = hashes.poll();
+      this.board.unpack(state);
+      this.expanded++;
+      if (this.board.isWon()) {
+        this.visited = parents.size();
+        return new Some<>(this.pathTo(state, parents));
+      }
+
+      int count = generator.generate(moves);
+      for (int i = 0; i < count; i++) {
+        int v = MoveGenerator.vehicleOf(moves[i]);
+        int q = MoveGenerator.positionOf(moves[i]);
+        long next = this.board.withPosition(state, v, q);
+        long nextHash = zobrist.slide(hash, v, this.board.pos[v], q);
+        if (parents.putIfAbsent(next, state, (int) nextHash)) {
+          queue.add(next);
+          hashes.add(nextHash);
+        }
+      }
+    }
+    this.visited = parents.size();
+    return new None<>();
+  }
+
+  // the map the breadth-first search remembers states in: off the heap, within offHeapBytes,
+  // if offHeapBytes is set
+  IHashedStateMap makeParents(ZobristHasher zobrist) {
+    if (this.offHeapBytes > 0) {
+      return new OffHeapStateMap(1 << 10, this.offHeapBytes, zobrist);
+    } else {
+      return new StateMap(1 << 10, zobrist);
+    }
+  }
+
+  // can the level be won at all?
+  boolean isSolvable() {
+    return this.solve().isSome();
+  }
+
+  // walks back from the given state to the start, building the moves that led to it
+  IList<Move> pathTo(long state, IStateMap parents) {
+    IList<Move> moves = new MT<>();
+    while (state != this.start) {
+      long parent = parents.get(state);
+      for (int v = 0; v < this.board.vehicleCount(); v++) {
+        int from = this.board.positionIn(parent, v);
+        int to = this.board.positionIn(state, v);
+        if (from != to) {
+          moves = new Cons<>(new Move(v, from, to), moves);
+        }
+      }
+      state = parent;
+    }
+    return moves;
+  }
+}
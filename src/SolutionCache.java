@@ -0,0 +1,318 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Remembers the solutions RushHourSolver finds, in a file that outlives the program, so a
+// board that has been solved before (in this run or an earlier one) is answered without a
+// search. Boards are looked up by their CanonicalKey, so a level whose vehicles are listed in
+// another order, or its top-to-bottom mirror image, finds the solution of the one solved first.
+// Moves are therefore not stored by vehicle index but by a cell the moving vehicle covers and
+// the position it slides to, both as seen in the orientation (plain or mirrored) that gave the
+// key, and they are replayed on the board asked about to find its own vehicles; a stored
+// solution that does not replay to a win is treated as missing.
+//
+// The file is version 1 of
+//   'R' 'S' version
+// followed by one record per solved board:
+//   key (8 bytes)  count (4 bytes, -1 if the board cannot be won)  3 bytes per move  1
+// where each move is the column and row of the cell and the new position, one unsigned byte
+// each. Records are only ever appended, and a record's last byte is written last, so a record
+// cut short by a crash of the program is never read back. That ordering only holds in memory,
+// though: nothing is forced to the disk until close, so a power failure or an operating system
+// crash can lose records or keep a marker without the rest of its record. The file is
+// memory-mapped; opening it indexes every record by key, and the most recently used solutions
+// are also kept decoded in an LRU map.
+class SolutionCache implements Closeable {
+  static final byte VERSION = 1;
+  static final int HEADER_SIZE = 3;
+  // the bytes mapped at first; the mapping doubles whenever a record does not fit
+  static final int INITIAL_MAP_SIZE = 1 << 16;
+
+  FileChannel channel;
+  MappedByteBuffer file;
+  // where the next record goes
+  int end;
+  // where each key's record starts
+  HashMap<Long, Integer> index;
+  int capacity;
+  LinkedHashMap<Long, CachedSolution> recent;
+  CanonicalKey keys;
+  int memoryHits;
+  int diskHits;
+  int misses;
+
+  SolutionCache(Path path, int capacity) throws IOException {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("A cache needs room for at least one solution.");
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    this.index = new HashMap<>();
+    this.capacity = capacity;
+    this.recent = new LinkedHashMap<Long, CachedSolution>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<Long, CachedSolution> eldest) {
+        return this.size() > SolutionCache.this.capacity;
+      }
+    };
+    this.keys = new CanonicalKey();
+    // the header of a file that is already there is read before mapping it, since mapping
+    // more than the file holds makes the file that long
+    boolean empty = this.channel.size() == 0;
+    if (!empty) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && this.channel.read(header, header.position()) >= 0) {
+        // reads until the header is full or the file ends
+      }
+      if (header.hasRemaining() || header.get(0) != 'R' || header.get(1) != 'S') {
+        this.channel.close();
+        throw new IllegalArgumentException("Not a solution cache.");
+      } else if (header.get(2) != VERSION) {
+        this.channel.close();
+        throw new IllegalArgumentException("Unknown solution cache version " + header.get(2)
+                + ".");
+      }
+    }
+    this.file = this.channel.map(FileChannel.MapMode.READ_WRITE, 0,
+            Math.max(INITIAL_MAP_SIZE, this.channel.size()));
+    if (empty) {
+      this.file.put(0, (byte) 'R');
+      this.file.put(1, (byte) 'S');
+      this.file.put(2, VERSION);
+    }
+    this.end = HEADER_SIZE;
+    while (this.end + 13 <= this.file.limit()) {
+      int count = this.file.getInt(this.end + 8);
+      int size = recordSize(count);
+      if (count < -1 || this.end + size > this.file.limit()
+              || this.file.get(this.end + size - 1) != 1) {
+        break;
+      }
+      this.index.put(this.file.getLong(this.end), this.end);
+      this.end += size;
+    }
+  }
+
+  /*
+  F:
+  channel -- FileChannel
+  file -- MappedByteBuffer
+  end -- int
+  index -- HashMap<Long, Integer>
+  capacity -- int
+  recent -- LinkedHashMap<Long, CachedSolution>
+  keys -- CanonicalKey
+  memoryHits, diskHits, misses -- int
+  M:
+  solve -- Optional<IList<Move>>
+  lookup -- Optional<CachedSolution>
+  store -- void
+  encode -- CachedSolution
+  replay -- Optional<IList<Move>>
+  isMirrored -- boolean
+  lookups -- int
+  hitRate -- double
+  size -- int
+  recordSize -- int
+  close -- void
+  MoF:
+  keys.of -- long
+  keys.keyOf -- long
+   */
+
+  // a shortest list of moves that wins board, or None if it cannot be won, from the cache if
+  // it has the board and from a RushHourSolver (whose answer is then cached) if not
+  synchronized Optional<IList<Move>> solve(BoardState board) throws IOException {
+    if (board.cols > 0xff || board.rows > 0xff) {
+      throw new IllegalArgumentException("Only boards up to 255 cells across can be cached.");
+    }
+    long key = this.keys.of(board);
+    boolean mirrored = this.isMirrored(board);
+    boolean inMemory = this.recent.containsKey(key);
+    Optional<CachedSolution> cached = this.lookup(key);
+    if (cached.isSome()) {
+      Optional<IList<Move>> moves = this.replay(board, cached.unwrap(), mirrored);
+      // stored moves that do not win this board are ignored, and the board is solved again
+      if (moves.isSome() || !cached.unwrap().solvable) {
+        if (inMemory) {
+          this.memoryHits++;
+        } else {
+          this.diskHits++;
+        }
+        return moves;
+      }
+    }
+    this.misses++;
+    Optional<IList<Move>> solution = new RushHourSolver(board).solve();
+    this.store(key, this.encode(board, solution, mirrored));
+    return solution;
+  }
+
+  // the solution cached for key, from memory if it is there and from the file if not
+  // EFFECT: keeps a solution read from the file in memory
+  Optional<CachedSolution> lookup(long key) {
+    CachedSolution solution = this.recent.get(key);
+    if (solution != null) {
+      return new Some<>(solution);
+    }
+    Integer at = this.index.get(key);
+    if (at == null) {
+      return new None<>();
+    }
+    int count = this.file.getInt(at + 8);
+    int[] moves = new int[Math.max(0, count)];
+    for (int i = 0; i < moves.length; i++) {
+      int move = at + 12 + 3 * i;
+      moves[i] = ((this.file.get(move) & 0xff) << 16) | ((this.file.get(move + 1) & 0xff) << 8)
+              | (this.file.get(move + 2) & 0xff);
+    }
+    solution = new CachedSolution(count >= 0, moves);
+    this.recent.put(key, solution);
+    return new Some<>(solution);
+  }
+
+  // EFFECT: appends the solution for key to the file and keeps it in memory
+  void store(long key, CachedSolution solution) throws IOException {
+    int size = recordSize(solution.solvable ? solution.moves.length : -1);
+    if (this.end + size > this.file.limit()) {
+      long grown = Math.max((long) this.file.limit() * 2, this.end + size);
+      if (grown > Integer.MAX_VALUE) {
+        throw new IllegalStateException("The solution cache file is full.");
+      }
+      this.file = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+    }
+    this.file.putLong(this.end, key);
+    this.file.putInt(this.end + 8, solution.solvable ? solution.moves.length : -1);
+    for (int i = 0; i < solution.moves.length; i++) {
+      int move = this.end + 12 + 3 * i;
+      this.file.put(move, (byte) (solution.moves[i] >>> 16));
+      this.file.put(move + 1, (byte) (solution.moves[i] >>> 8));
+      this.file.put(move + 2, (byte) solution.moves[i]);
+    }
+    this.file.put(this.end + size - 1, (byte) 1);
+    this.index.put(key, this.end);
+    this.recent.put(key, solution);
+    this.end += size;
+  }
+
+  // solution in the form the cache keeps: each move as the column and row of the back cell of
+  // the vehicle moved and the position it moves to, mirrored top to bottom if mirrored is set
+  CachedSolution encode(BoardState board, Optional<IList<Move>> solution, boolean mirrored) {
+    if (!solution.isSome()) {
+      return new CachedSolution(false, new int[0]);
+    }
+    ArrayList<Move> list = solution.unwrap().fold((move, moves) -> {
+      moves.add(move);
+      return moves;
+    }, new ArrayList<>());
+    int[] moves = new int[list.size()];
+    BoardState replay = new BoardState(board);
+    for (int i = 0; i < moves.length; i++) {
+      int v = list.get(i).vehicle;
+      int to = list.get(i).to;
+      int col = replay.horizontal[v] ? replay.pos[v] : replay.lane[v];
+      int row = replay.horizontal[v] ? replay.lane[v] : replay.pos[v];
+      int p = to;
+      if (mirrored) {
+        row = replay.rows - 1 - row;
+        p = replay.horizontal[v] ? to : replay.rows - to - replay.length[v];
+      }
+      moves[i] = (col << 16) | (row << 8) | p;
+      replay.moveTo(v, to);
+    }
+    return new CachedSolution(true, moves);
+  }
+
+  // the moves of a cached solution for board, if replaying them from board's position wins it
+  Optional<IList<Move>> replay(BoardState board, CachedSolution solution, boolean mirrored) {
+    if (!solution.solvable) {
+      return new None<>();
+    }
+    BoardState replay = new BoardState(board);
+    Move[] moves = new Move[solution.moves.length];
+    for (int i = 0; i < moves.length; i++) {
+      int col = solution.moves[i] >>> 16;
+      int row = (solution.moves[i] >>> 8) & 0xff;
+      int p = solution.moves[i] & 0xff;
+      if (mirrored) {
+        row = replay.rows - 1 - row;
+      }
+      int v = replay.ownerOf(col, row);
+      if (v < 0) {
+        return new None<>();
+      }
+      if (mirrored && !replay.horizontal[v]) {
+        p = replay.rows - p - replay.length[v];
+      }
+      int from = replay.pos[v];
+      if (!replay.slideTo(v, p)) {
+        return new None<>();
+      }
+      moves[i] = new Move(v, from, p);
+    }
+    if (!replay.isWon()) {
+      return new None<>();
+    }
+    IList<Move> list = new MT<>();
+    for (int i = moves.length - 1; i >= 0; i--) {
+      list = new Cons<>(moves[i], list);
+    }
+    return new Some<>(list);
+  }
+
+  // does board's key come from its mirror image?
+  boolean isMirrored(BoardState board) {
+    return this.keys.keyOf(board, true) < this.keys.keyOf(board, false);
+  }
+
+  // how many boards have been looked up
+  synchronized int lookups() {
+    return this.memoryHits + this.diskHits + this.misses;
+  }
+
+  // the share of lookups answered without a search
+  synchronized double hitRate() {
+    return (this.memoryHits + this.diskHits) / (double) Math.max(1, this.lookups());
+  }
+
+  // how many boards the file has solutions for
+  synchronized int size() {
+    return this.index.size();
+  }
+
+  // the bytes a record with count moves takes (no moves if count is -1)
+  static int recordSize(int count) {
+    return 13 + 3 * Math.max(0, count);
+  }
+
+  // EFFECT: writes the mapped file out and closes it
+  public synchronized void close() throws IOException {
+    this.file.force();
+    this.channel.close();
+  }
+}
+
+// Represents a solution as a SolutionCache keeps it: whether the board can be won and, if it
+// can, the moves that win it, each packed as (column << 16) | (row << 8) | new position.
+class CachedSolution {
+  boolean solvable;
+  int[] moves;
+
+  CachedSolution(boolean solvable, int[] moves) {
+    this.solvable = solvable;
+    this.moves = moves;
+  }
+
+  /*
+  F:
+  solvable -- boolean
+  moves -- int[]
+   */
+}
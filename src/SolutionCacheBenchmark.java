@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+// Replays a stream of solve requests through a SolutionCache, the way a validation service
+// sees them: a pool of generated levels, some asked for far more often than others, and some
+// asked for as their mirror image. The stream is run once on an empty cache file and once more
+// after closing and reopening it, as after a restart. For each run the report gives the hits
+// answered from memory and from the file, the misses, the hit rate, and the median and 99th
+// percentile time of a hit and of a miss. Run with
+//   java SolutionCacheBenchmark [levels] [requests] [lruCapacity] [seed]
+class SolutionCacheBenchmark {
+  public static void main(String[] args) throws IOException {
+    int levels = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+    int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : 2510;
+
+    Random rng = new Random(seed);
+    RushHourUtils utils = new RushHourUtils();
+    ArrayList<BoardState> pool = new ArrayList<>();
+    ArrayList<BoardState> mirrors = new ArrayList<>();
+    for (int i = 0; i < levels; i++) {
+      ParsedLevel level = utils.parseLevel(LevelStrings.randomLevel(rng, 5, 7), 1);
+      pool.add(level.toBoardState());
+      mirrors.add(utils.parseLevel(LevelStrings.mirrorLevel(level), 1).toBoardState());
+    }
+    // a few levels are asked for most of the time: the cube of a uniform number leans to 0
+    BoardState[] stream = new BoardState[requests];
+    for (int i = 0; i < requests; i++) {
+      double u = rng.nextDouble();
+      int pick = (int) (u * u * u * levels);
+      stream[i] = rng.nextInt(4) == 0 ? mirrors.get(pick) : pool.get(pick);
+    }
+
+    Path file = Files.createTempFile("solutions", ".bin");
+    System.out.println("run\tmemory hits\tfile hits\tmisses\thit rate\thit p50/p99 micros"
+            + "\tmiss p50/p99 micros");
+    measure("first", file, capacity, stream);
+    measure("restart", file, capacity, stream);
+    System.out.println("file bytes: " + Files.size(file));
+    Files.delete(file);
+  }
+
+  // runs every request of stream through a cache on file, printing what it saw
+  static void measure(String name, Path file, int capacity, BoardState[] stream)
+          throws IOException {
+    try (SolutionCache cache = new SolutionCache(file, capacity)) {
+      long[] hits = new long[stream.length];
+      long[] misses = new long[stream.length];
+      int hitCount = 0;
+      int missCount = 0;
+      for (BoardState board : stream) {
+        int before = cache.misses;
+        long begin = System.nanoTime();
+        cache.solve(board);
+        long nanos = System.nanoTime() - begin;
+        if (cache.misses == before) {
+          hits[hitCount] = nanos;
+          hitCount++;
+        } else {
+          misses[missCount] = nanos;
+          missCount++;
+        }
+      }
+      System.out.println(name + "\t" + cache.memoryHits + "\t" + cache.diskHits + "\t"
+              + cache.misses + "\t" + String.format("%.3f", cache.hitRate()) + "\t"
+              + percentiles(hits, hitCount) + "\t" + percentiles(misses, missCount));
+    }
+  }
+
+  // the median and 99th percentile of the first count times, in microseconds
+  static String percentiles(long[] nanos, int count) {
+    if (count == 0) {
+      return "-";
+    }
+    long[] sorted = Arrays.copyOf(nanos, count);
+    Arrays.sort(sorted);
+    return String.format("%.1f/%.1f", sorted[count / 2] / 1000.0,
+            sorted[Math.min(count - 1, count * 99 / 100)] / 1000.0);
+  }
+}
@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+// Measures how fast the solvers expand states, on the ExamplesRushHour levels and on larger
+// randomly generated boards, for 1, 2, 4, ... threads up to the number of cores. Run with
+//   java SolverBenchmark [boardSize] [boards] [seed]
+// boardSize is the number of open cells along each side of the generated boards.
+class SolverBenchmark {
+  static final String[] EXAMPLE_LEVELS = {
+      "+------+"
+          + "|      |"
+          + "|  C T |"
+          + "|c    CX"
+          + "|t     |"
+          + "|CCC c |"
+          + "|    c |"
+          + "+------+",
+      "+-----+"
+          + "|     |"
+          + "|  C T|"
+          + "|c    X"
+          + "|t    |"
+          + "+-----+"
+  };
+
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 2510;
+
+    ArrayList<BoardState> examples = new ArrayList<>();
+    for (String level : EXAMPLE_LEVELS) {
+      examples.add(LevelStrings.boardFor(level));
+    }
+    ArrayList<BoardState> generated = new ArrayList<>();
+    Random rng = new Random(seed);
+    while (generated.size() < count) {
+      BoardState board = LevelStrings.boardFor(
+              LevelStrings.randomLevel(rng, size, size * size / 3));
+      if (board.fitsInLong()) {
+        generated.add(board);
+      }
+    }
+
+    report("ExamplesRushHour levels", examples);
+    report(count + " generated " + size + "x" + size + " boards", generated);
+  }
+
+  // prints states/sec for the given boards with the sequential solver and with every thread count
+  static void report(String name, ArrayList<BoardState> boards) {
+    System.out.println(name);
+    System.out.println("threads\tstates\tmillis\tstates/sec\tmoves");
+    // warm up the JIT so the first row is not penalised
+    for (BoardState board : boards) {
+      new RushHourSolver(board).solve();
+    }
+    measure("seq", boards, 0);
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      measure(Integer.toString(threads), boards, threads);
+    }
+    if (Integer.highestOneBit(cores) != cores) {
+      measure(Integer.toString(cores), boards, cores);
+    }
+    System.out.println();
+  }
+
+  // solves every board once, with the sequential solver if threads is 0
+  static void measure(String label, ArrayList<BoardState> boards, int threads) {
+    long states = 0;
+    long moves = 0;
+    long begin = System.nanoTime();
+    for (BoardState board : boards) {
+      RushHourSolver solver = threads == 0
+              ? new RushHourSolver(board)
+              : new ParallelRushHourSolver(board, threads);
+      Optional<IList<Move>> solution = solver.solve();
+      states += solver.expanded;
+      if (solution.isSome()) {
+        moves += solution.unwrap().fold((move, n) -> n + 1, 0);
+      }
+    }
+    long millis = Math.max(1, (System.nanoTime() - begin) / 1000000);
+    System.out.println(label + "\t" + states + "\t" + millis + "\t"
+            + (states * 1000 / millis) + "\t" + moves);
+  }
+}
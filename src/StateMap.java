@@ -0,0 +1,494 @@
+import java.util.Arrays;
+
+// Represents a map from packed board states to packed board states (in the solvers, the state
+// each one was first reached from).
+interface IStateMap {
+  // adds key with the given value unless key is already in the map, returning whether it was added
+  boolean putIfAbsent(long key, long value);
+
+  // is key in this map?
+  boolean containsKey(long key);
+
+  // the value stored for key, throwing an exception if key is not in this map
+  long get(long key);
+
+  // how many keys are in this map
+  int size();
+}
+
+// Represents an IStateMap that can be handed the hash of a key instead of hashing it itself, so
+// a search that keeps its states' Zobrist hashes up to date can use any such map.
+interface IHashedStateMap extends IStateMap {
+  // adds key with the given value unless key is already in the map, given the hash the map would
+  // give key, returning whether it was added
+  boolean putIfAbsent(long key, long value, int hash);
+}
+
+// Represents a hash map from packed board states to packed board states. Keys and values live in
+// two flat long arrays using open addressing, so no object is allocated per state. Keys are
+// spread over the slots by mixing their bits, or by their Zobrist hash if the map is given a
+// ZobristHasher; a caller that keeps the Zobrist hash of its states up to date can hand it in
+// and save hashing the key again.
+class StateMap implements IHashedStateMap {
+  // marks an unused slot; a real key equal to it is kept on the side
+  static final long EMPTY = -1L;
+
+  long[] keys;
+  long[] values;
+  int size;
+  boolean hasEmptyKey;
+  long emptyKeyValue;
+  // hashes the keys if it is not null
+  ZobristHasher zobrist;
+
+  StateMap() {
+    this(1 << 10);
+  }
+
+  StateMap(int expected) {
+    this(expected, null);
+  }
+
+  StateMap(int expected, ZobristHasher zobrist) {
+    int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+    this.keys = new long[capacity];
+    this.values = new long[capacity];
+    this.zobrist = zobrist;
+    Arrays.fill(this.keys, EMPTY);
+  }
+
+  /*
+  F:
+  keys -- long[]
+  values -- long[]
+  size -- int
+  hasEmptyKey -- boolean
+  emptyKeyValue -- long
+  zobrist -- ZobristHasher
+  M:
+  putIfAbsent -- boolean
+  containsKey -- boolean
+  get -- long
+  size -- int
+  hashOf -- int
+  hash -- int
+  grow -- void
+  MoF:
+  zobrist.hashPacked -- long
+   */
+
+  // adds key with the given value, unless key is already in the map
+  // EFFECT: may add key to this map
+  // returns whether the key was added
+  public boolean putIfAbsent(long key, long value) {
+    return this.putIfAbsent(key, value, this.hashOf(key));
+  }
+
+  // the same, given the hash of key (see hashOf)
+  public boolean putIfAbsent(long key, long value, int hash) {
+    if (key == EMPTY) {
+      if (this.hasEmptyKey) {
+        return false;
+      }
+      this.hasEmptyKey = true;
+      this.emptyKeyValue = value;
+      this.size++;
+      return true;
+    }
+    int mask = this.keys.length - 1;
+    int i = hash & mask;
+    while (this.keys[i] != EMPTY) {
+      if (this.keys[i] == key) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    this.keys[i] = key;
+    this.values[i] = value;
+    this.size++;
+    if (this.size * 2 > this.keys.length) {
+      this.grow();
+    }
+    return true;
+  }
+
+  // is key in this map?
+  public boolean containsKey(long key) {
+    return this.containsKey(key, this.hashOf(key));
+  }
+
+  // the same, given the hash of key (see hashOf)
+  boolean containsKey(long key, int hash) {
+    if (key == EMPTY) {
+      return this.hasEmptyKey;
+    }
+    int mask = this.keys.length - 1;
+    int i = hash & mask;
+    while (this.keys[i] != EMPTY) {
+      if (this.keys[i] == key) {
+        return true;
+      }
+      i = (i + 1) & mask;
+    }
+    return false;
+  }
+
+  // the value stored for key, throwing an exception if key is not in this map
+  public long get(long key) {
+    if (key == EMPTY) {
+      if (this.hasEmptyKey) {
+        return this.emptyKeyValue;
+      }
+      throw new IllegalArgumentException("No such state in the map.");
+    }
+    int mask = this.keys.length - 1;
+    int i = this.hashOf(key) & mask;
+    while (this.keys[i] != EMPTY) {
+      if (this.keys[i] == key) {
+        return this.values[i];
+      }
+      i = (i + 1) & mask;
+    }
+    throw new IllegalArgumentException("No such state in the map.");
+  }
+
+  // how many keys are in this map
+  public int size() {
+    return this.size;
+  }
+
+  // the hash this map places key by: the low bits of its Zobrist hash if the map has a
+  // ZobristHasher, otherwise its mixed bits
+  int hashOf(long key) {
+    if (this.zobrist == null) {
+      return hash(key);
+    } else {
+      return (int) this.zobrist.hashPacked(key);
+    }
+  }
+
+  // mixes the bits of a packed state, since neighbouring states differ in only a few bits
+  static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+
+  // EFFECT: doubles the number of slots and re-inserts every key
+  void grow() {
+    long[] oldKeys = this.keys;
+    long[] oldValues = this.values;
+    this.keys = new long[oldKeys.length * 2];
+    this.values = new long[oldValues.length * 2];
+    Arrays.fill(this.keys, EMPTY);
+    int mask = this.keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != EMPTY) {
+        int i = this.hashOf(oldKeys[j]) & mask;
+        while (this.keys[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        this.keys[i] = oldKeys[j];
+        this.values[i] = oldValues[j];
+      }
+    }
+  }
+}
+
+// Represents a first-in first-out queue of packed board states, stored in a growable ring of
+// longs.
+class LongQueue {
+  long[] items;
+  int head;
+  int size;
+
+  LongQueue() {
+    this.items = new long[1 << 10];
+  }
+
+  /*
+  F:
+  items -- long[]
+  head -- int
+  size -- int
+  M:
+  add -- void
+  poll -- long
+  isEmpty -- boolean
+   */
+
+  // EFFECT: adds item to the back of this queue
+  void add(long item) {
+    if (this.size == this.items.length) {
+      long[] bigger = new long[this.items.length * 2];
+      for (int i = 0; i < this.size; i++) {
+        bigger[i] = this.items[(this.head + i) & (this.items.length - 1)];
+      }
+      this.items = bigger;
+      this.head = 0;
+    }
+    this.items[(this.head + this.size) & (this.items.length - 1)] = item;
+    this.size++;
+  }
+
+  // EFFECT: removes the item at the front of this queue
+  // returns that item, throwing an exception if the queue is empty
+  long poll() {
+    if (this.size == 0) {
+      throw new RuntimeException("Cannot poll an empty queue.");
+    }
+    long item = this.items[this.head];
+    this.head = (this.head + 1) & (this.items.length - 1);
+    this.size--;
+    return item;
+  }
+
+  // are there no items in this queue?
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+}
+
+// Represents a StateMap split into stripes that can be used from many threads at once. Each key
+// belongs to one stripe (picked from the high bits of its hash), and each stripe is locked on its
+// own, so threads only wait for each other when they touch the same stripe. The stripes are
+// StateMaps, or OffHeapStateMaps splitting a number of bytes of direct memory evenly.
+class StripedStateMap implements IStateMap {
+  IStateMap[] stripes;
+  int shift;
+
+  StripedStateMap(int stripeCount) {
+    this(stripeCount, 0);
+  }
+
+  // a map whose stripes are OffHeapStateMaps sharing offHeapBytes between them, if it is set
+  StripedStateMap(int stripeCount, long offHeapBytes) {
+    int count = Integer.highestOneBit(Math.max(1, stripeCount * 2 - 1));
+    this.stripes = new IStateMap[count];
+    for (int i = 0; i < count; i++) {
+      if (offHeapBytes > 0) {
+        this.stripes[i] = new OffHeapStateMap(offHeapBytes / count);
+      } else {
+        this.stripes[i] = new StateMap();
+      }
+    }
+    this.shift = 32 - Integer.numberOfTrailingZeros(count);
+  }
+
+  /*
+  F:
+  stripes -- IStateMap[]
+  shift -- int
+  M:
+  stripeFor -- IStateMap
+  putIfAbsent -- boolean
+  containsKey -- boolean
+  get -- long
+  size -- int
+   */
+
+  // the stripe that holds key
+  IStateMap stripeFor(long key) {
+    if (this.stripes.length == 1) {
+      return this.stripes[0];
+    }
+    return this.stripes[StateMap.hash(key) >>> this.shift];
+  }
+
+  public boolean putIfAbsent(long key, long value) {
+    IStateMap stripe = this.stripeFor(key);
+    synchronized (stripe) {
+      return stripe.putIfAbsent(key, value);
+    }
+  }
+
+  public boolean containsKey(long key) {
+    IStateMap stripe = this.stripeFor(key);
+    synchronized (stripe) {
+      return stripe.containsKey(key);
+    }
+  }
+
+  public long get(long key) {
+    IStateMap stripe = this.stripeFor(key);
+    synchronized (stripe) {
+      return stripe.get(key);
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (IStateMap stripe : this.stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+}
+
+// Represents a growable list of packed board states.
+class LongList {
+  long[] items;
+  int size;
+
+  LongList() {
+    this.items = new long[16];
+  }
+
+  /*
+  F:
+  items -- long[]
+  size -- int
+  M:
+  add -- void
+  addAll -- void
+  get -- long
+   */
+
+  // EFFECT: adds item to the end of this list
+  void add(long item) {
+    if (this.size == this.items.length) {
+      this.items = Arrays.copyOf(this.items, this.items.length * 2);
+    }
+    this.items[this.size] = item;
+    this.size++;
+  }
+
+  // EFFECT: adds every item of that list to the end of this list
+  void addAll(LongList that) {
+    if (this.size + that.size > this.items.length) {
+      this.items = Arrays.copyOf(this.items,
+              Math.max(this.items.length * 2, this.size + that.size));
+    }
+    System.arraycopy(that.items, 0, this.items, this.size, that.size);
+    this.size += that.size;
+  }
+
+  // the item at index i
+  long get(int i) {
+    return this.items[i];
+  }
+}
+
+// Represents a priority queue of packed board states for A* search, kept as a binary heap in
+// flat arrays. Each entry also keeps the state it was reached from and the moves made to reach
+// it; entries come out smallest priority first, and among equal priorities, most moves first.
+class StateHeap {
+  long[] states;
+  long[] parents;
+  int[] moves;
+  int[] priorities;
+  int size;
+
+  StateHeap() {
+    this.states = new long[1 << 10];
+    this.parents = new long[1 << 10];
+    this.moves = new int[1 << 10];
+    this.priorities = new int[1 << 10];
+  }
+
+  /*
+  F:
+  states, parents -- long[]
+  moves, priorities -- int[]
+  size -- int
+  M:
+  add -- void
+  poll -- long
+  peekParent -- long
+  peekMoves -- int
+  isEmpty -- boolean
+  before -- boolean
+  swap -- void
+   */
+
+  // EFFECT: adds state to this heap
+  void add(long state, long parent, int moves, int priority) {
+    if (this.size == this.states.length) {
+      int capacity = this.size * 2;
+      this.states = Arrays.copyOf(this.states, capacity);
+      this.parents = Arrays.copyOf(this.parents, capacity);
+      this.moves = Arrays.copyOf(this.moves, capacity);
+      this.priorities = Arrays.copyOf(this.priorities, capacity);
+    }
+    int i = this.size;
+    this.states[i] = state;
+    this.parents[i] = parent;
+    this.moves[i] = moves;
+    this.priorities[i] = priority;
+    this.size++;
+    while (i > 0 && this.before(i, (i - 1) / 2)) {
+      this.swap(i, (i - 1) / 2);
+      i = (i - 1) / 2;
+    }
+  }
+
+  // the state the first entry was reached from
+  long peekParent() {
+    return this.parents[0];
+  }
+
+  // the moves made to reach the first entry
+  int peekMoves() {
+    return this.moves[0];
+  }
+
+  // EFFECT: removes the first entry of this heap
+  // returns its state, throwing an exception if the heap is empty
+  long poll() {
+    if (this.size == 0) {
+      throw new RuntimeException("Cannot poll an empty heap.");
+    }
+    long state = this.states[0];
+    this.size--;
+    this.swap(0, this.size);
+    int i = 0;
+    while (true) {
+      int smallest = i;
+      int left = 2 * i + 1;
+      int right = left + 1;
+      if (left < this.size && this.before(left, smallest)) {
+        smallest = left;
+      }
+      if (right < this.size && this.before(right, smallest)) {
+        smallest = right;
+      }
+      if (smallest == i) {
+        return state;
+      }
+      this.swap(i, smallest);
+      i = smallest;
+    }
+  }
+
+  // are there no entries in this heap?
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // should entry i come out before entry j?
+  boolean before(int i, int j) {
+    return this.priorities[i] < this.priorities[j]
+            || (this.priorities[i] == this.priorities[j] && this.moves[i] > this.moves[j]);
+  }
+
+  // EFFECT: swaps entries i and j
+  void swap(int i, int j) {
+    long state = this.states[i];
+    this.states[i] = this.states[j];
+    this.states[j] = state;
+    long parent = this.parents[i];
+    this.parents[i] = this.parents[j];
+    this.parents[j] = parent;
+    int moves = this.moves[i];
+    this.moves[i] = this.moves[j];
+    this.moves[j] = moves;
+    int priority = this.priorities[i];
+    this.priorities[i] = this.priorities[j];
+    this.priorities[j] = priority;
+  }
+}
@@ -0,0 +1,277 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+// Renders levels to PNG thumbnails without opening a World, for previews of a whole catalog of
+// levels. The tiles are the same ones the game draws (Vehicle.toTiles and the TileGrid's
+// border), painted into a BufferedImage instead of a WorldScene. Work goes through two bounded
+// queues: the caller's thread hands level strings to the workers, the workers parse, paint and
+// encode them, and a single writer thread saves the encoded PNGs. A full queue makes the stage
+// before it wait, so however many levels are streamed in, only a fixed number are held at once.
+// If the levels cannot be read to the end, every thread is stopped before the error is passed on.
+// Run with
+//   java ThumbnailRenderer levels.txt outputDir [threads] [tileSize]
+// where levels.txt holds one level string per line.
+class ThumbnailRenderer {
+  // marks the end of the work in a queue
+  static final ThumbnailJob DONE = new ThumbnailJob(-1, "");
+
+  Path outputDir;
+  int tileSize;
+  int threads;
+  int queueCapacity;
+
+  ThumbnailRenderer(Path outputDir, int tileSize, int threads, int queueCapacity) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("A renderer needs at least one thread.");
+    }
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("The queues need room for at least one level.");
+    }
+    this.outputDir = outputDir;
+    this.tileSize = tileSize;
+    this.threads = threads;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /*
+  F:
+  outputDir -- Path
+  tileSize -- int
+  threads -- int
+  queueCapacity -- int
+  M:
+  renderAll -- ThumbnailReport
+  stopAll -- void
+  render -- BufferedImage
+  encode -- byte[]
+  fileFor -- Path
+   */
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    System.setProperty("java.awt.headless", "true");
+    Path levels = Paths.get(args[0]);
+    Path outputDir = Paths.get(args[1]);
+    int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+    int tileSize = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+    Files.createDirectories(outputDir);
+    try (Stream<String> lines = Files.lines(levels)) {
+      ThumbnailRenderer renderer = new ThumbnailRenderer(outputDir, tileSize, threads, 256);
+      System.out.println(renderer.renderAll(lines.filter(line -> !line.isEmpty())));
+    }
+  }
+
+  // renders every level of levels to outputDir, numbered in the order they come in, and reports
+  // how it went; levels that cannot be read are counted as failed and skipped
+  ThumbnailReport renderAll(Stream<String> levels) throws IOException, InterruptedException {
+    BlockingQueue<ThumbnailJob> toRender = new ArrayBlockingQueue<>(this.queueCapacity);
+    BlockingQueue<ThumbnailJob> toWrite = new ArrayBlockingQueue<>(this.queueCapacity);
+    AtomicLong failed = new AtomicLong();
+    AtomicLong bytes = new AtomicLong();
+    AtomicReference<Exception> firstFailure = new AtomicReference<>();
+    AtomicReference<IOException> writeFailure = new AtomicReference<>();
+
+    Thread[] workers = new Thread[this.threads];
+    for (int i = 0; i < this.threads; i++) {
+      workers[i] = new Thread(() -> {
+        RushHourUtils utils = new RushHourUtils();
+        try {
+          for (ThumbnailJob job = toRender.take(); job != DONE; job = toRender.take()) {
+            try {
+              job.png = this.encode(this.render(utils.parseLevel(job.level, this.tileSize)));
+              toWrite.put(job);
+            } catch (RuntimeException | IOException e) {
+              failed.incrementAndGet();
+              firstFailure.compareAndSet(null, e);
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }, "thumbnail-worker-" + i);
+      workers[i].start();
+    }
+    Thread writer = new Thread(() -> {
+      try {
+        for (ThumbnailJob job = toWrite.take(); job != DONE; job = toWrite.take()) {
+          if (writeFailure.get() == null) {
+            try {
+              Files.write(this.fileFor(job.index), job.png);
+              bytes.addAndGet(job.png.length);
+            } catch (IOException e) {
+              writeFailure.set(e);
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "thumbnail-writer");
+    writer.start();
+
+    long begin = System.nanoTime();
+    long count = 0;
+    // if reading the levels throws, or this thread is interrupted, the workers and the writer
+    // are interrupted instead of waiting for DONE, and are waited for before this returns
+    boolean finished = false;
+    try {
+      Iterator<String> it = levels.iterator();
+      while (it.hasNext() && writeFailure.get() == null) {
+        toRender.put(new ThumbnailJob(count, it.next()));
+        count++;
+      }
+      for (int i = 0; i < this.threads; i++) {
+        toRender.put(DONE);
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      toWrite.put(DONE);
+      writer.join();
+      finished = true;
+    } finally {
+      if (!finished) {
+        stopAll(workers);
+        stopAll(writer);
+      }
+    }
+    long millis = (System.nanoTime() - begin) / 1000000;
+
+    if (writeFailure.get() != null) {
+      throw writeFailure.get();
+    }
+    return new ThumbnailReport(count - failed.get(), failed.get(), bytes.get(), millis,
+            this.threads, firstFailure.get());
+  }
+
+  // EFFECT: interrupts each of the threads and waits for them all to end; if the calling thread
+  // is interrupted meanwhile it keeps waiting, and is left interrupted once they have ended
+  static void stopAll(Thread... threads) {
+    boolean interrupted = false;
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+    for (Thread thread : threads) {
+      while (thread.isAlive()) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // paints level the way the game draws it: white, then the vehicles, then the border
+  BufferedImage render(ParsedLevel level) {
+    TileGrid grid = level.tileGrid;
+    BufferedImage image = new BufferedImage(grid.cols * this.tileSize, grid.rows * this.tileSize,
+            BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+      level.vehicles.lazy().flatMap(new VehiclesToTileLists())
+              .concat(grid.createBorderTiles(this.tileSize).lazy())
+              .fold(new PaintTile(this.tileSize), graphics);
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  // image encoded as a PNG
+  byte[] encode(BufferedImage image) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", out);
+    return out.toByteArray();
+  }
+
+  // the file the thumbnail of the level with the given number goes in
+  Path fileFor(long index) {
+    return this.outputDir.resolve(String.format("level-%07d.png", index));
+  }
+}
+
+// Represents one level on its way through a ThumbnailRenderer: its number, its level string,
+// and once it has been rendered, its encoded PNG.
+class ThumbnailJob {
+  long index;
+  String level;
+  byte[] png;
+
+  ThumbnailJob(long index, String level) {
+    this.index = index;
+    this.level = level;
+  }
+}
+
+// Represents how a run of a ThumbnailRenderer went.
+class ThumbnailReport {
+  long rendered;
+  long failed;
+  long bytes;
+  long millis;
+  int threads;
+  Exception firstFailure;
+
+  ThumbnailReport(long rendered, long failed, long bytes, long millis, int threads,
+                  Exception firstFailure) {
+    this.rendered = rendered;
+    this.failed = failed;
+    this.bytes = bytes;
+    this.millis = millis;
+    this.threads = threads;
+    this.firstFailure = firstFailure;
+  }
+
+  // thumbnails written per second
+  double throughput() {
+    return this.rendered * 1000.0 / Math.max(1, this.millis);
+  }
+
+  public String toString() {
+    String report = this.rendered + " thumbnails (" + this.bytes + " bytes) in " + this.millis
+            + " ms on " + this.threads + " threads: "
+            + String.format("%.0f", this.throughput()) + " thumbnails/sec";
+    if (this.failed > 0) {
+      report += "\n" + this.failed + " levels failed, the first with: "
+              + this.firstFailure.getMessage();
+    }
+    return report;
+  }
+}
+
+// Paints a tile onto a Graphics2D as a filled square.
+class PaintTile implements BiFunction<Tile, Graphics2D, Graphics2D> {
+  int tileSize;
+
+  PaintTile(int tileSize) {
+    this.tileSize = tileSize;
+  }
+
+  public Graphics2D apply(Tile tile, Graphics2D graphics) {
+    graphics.setColor(tile.color);
+    graphics.fillRect(tile.col * this.tileSize, tile.row * this.tileSize,
+            this.tileSize, this.tileSize);
+    return graphics;
+  }
+}
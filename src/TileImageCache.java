@@ -0,0 +1,72 @@
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.RectangleImage;
+import javalib.worldimages.WorldImage;
+
+// Keeps the image of a tile for each (color, tile size) pair, so drawing a tile reuses the same
+// image instead of making a new RectangleImage every frame. Images never change once made, so
+// one image can be placed in any number of scenes. Only a handful of pairs ever come up (the
+// vehicle colors, the border and the highlight, at the sizes in use), but the cache still holds
+// at most a fixed number of images, dropping the one used least recently when it is full.
+// Lookups are synchronized, so boards drawn on several threads can share one cache.
+class TileImageCache {
+  // the cache used by Tile.draw and DrawTilesOntoGrid unless they are given another
+  static final TileImageCache SHARED = new TileImageCache(64);
+
+  int capacity;
+  LinkedHashMap<Long, WorldImage> images;
+  int misses;
+
+  TileImageCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("A cache needs room for at least one image.");
+    }
+    this.capacity = capacity;
+    this.images = new LinkedHashMap<Long, WorldImage>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<Long, WorldImage> eldest) {
+        return this.size() > TileImageCache.this.capacity;
+      }
+    };
+  }
+
+  /*
+  F:
+  capacity -- int
+  images -- LinkedHashMap<Long, WorldImage>
+  misses -- int
+  M:
+  imageFor -- WorldImage
+  size -- int
+  key -- long
+   */
+
+  // the image of a tile of the given color and size, with its pinhole at the top left corner
+  synchronized WorldImage imageFor(Color color, int tileSize) {
+    long key = key(color, tileSize);
+    WorldImage image = this.images.get(key);
+    if (image == null) {
+      this.misses++;
+      image = new RectangleImage(
+              tileSize,
+              tileSize,
+              OutlineMode.SOLID,
+              color
+      ).movePinhole(-0.5 * tileSize, -0.5 * tileSize);
+      this.images.put(key, image);
+    }
+    return image;
+  }
+
+  // how many images are cached
+  synchronized int size() {
+    return this.images.size();
+  }
+
+  // packs a color (with its alpha) and a tile size into one key
+  static long key(Color color, int tileSize) {
+    return ((long) color.getRGB() << 32) | (tileSize & 0xffffffffL);
+  }
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Measures how well Zobrist hashes spread the reachable states of generated boards, and how fast
+// they are to compute, next to StateMap.hash (the bit mixer used for packed states). For each
+// board every reachable state is listed; the report gives how many pairs of different states
+// share a full 64 bit Zobrist hash, and how many states land in an already used bucket of a
+// table with a power of two slots (at least twice the states), for both hashes and for a
+// perfectly random hash. Run with
+//   java ZobristBenchmark [boardSize] [boards] [seed]
+class ZobristBenchmark {
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 2510;
+
+    Random rng = new Random(seed);
+    System.out.println("states\tzobrist64 collisions\tbucket collisions: mixer\tzobrist\trandom");
+    long allStates = 0;
+    long mixTime = 0;
+    long fullTime = 0;
+    long slideTime = 0;
+    long sink = 0;
+    int boards = 0;
+    while (boards < count) {
+      BoardState board = LevelStrings.boardFor(
+              LevelStrings.randomLevel(rng, size, size * size / 3));
+      if (!board.fitsInLong()) {
+        continue;
+      }
+      boards++;
+      ZobristHasher zobrist = new ZobristHasher(board);
+      long[] states = DistanceTable.reachableFrom(board);
+      int n = states.length;
+      allStates += n;
+
+      long[] full = new long[n];
+      int[] mixed = new int[n];
+      for (int i = 0; i < n; i++) {
+        full[i] = zobrist.hashPacked(states[i]);
+        mixed[i] = StateMap.hash(states[i]);
+      }
+      int slots = Integer.highestOneBit(Math.max(16, n * 2 - 1)) << 1;
+      double random = n - slots * (1 - Math.pow(1 - 1.0 / slots, n));
+      System.out.println(n + "\t" + duplicates(full) + "\t"
+              + bucketCollisions(mixed, slots) + "\t"
+              + bucketCollisions(toInts(full), slots) + "\t" + Math.round(random));
+
+      // time each hash over every state (the incremental one over a slide per state)
+      long begin = System.nanoTime();
+      for (long state : states) {
+        sink += StateMap.hash(state);
+      }
+      mixTime += System.nanoTime() - begin;
+      begin = System.nanoTime();
+      for (long state : states) {
+        sink += zobrist.hashPacked(state);
+      }
+      fullTime += System.nanoTime() - begin;
+      begin = System.nanoTime();
+      long hash = full[0];
+      for (int i = 0; i < n; i++) {
+        int v = i % board.vehicleCount();
+        int from = board.positionIn(states[i], v);
+        hash = zobrist.slide(hash, v, from, (from + 1) % zobrist.table[v].length);
+        sink += hash;
+      }
+      slideTime += System.nanoTime() - begin;
+    }
+    System.out.println();
+    System.out.println("hash\tmillion hashes/sec");
+    System.out.println("mixer\t" + perSecond(allStates, mixTime));
+    System.out.println("zobrist full\t" + perSecond(allStates, fullTime));
+    System.out.println("zobrist slide\t" + perSecond(allStates, slideTime));
+    // printed so the timed loops are not optimised away
+    System.out.println("(" + (sink & 1) + ")");
+  }
+
+  // how many of the values are equal to an earlier one
+  static long duplicates(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    long count = 0;
+    for (int i = 1; i < sorted.length; i++) {
+      if (sorted[i] == sorted[i - 1]) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  // how many of the hashes land in a bucket (of the given power of two) already taken
+  static int bucketCollisions(int[] hashes, int slots) {
+    boolean[] used = new boolean[slots];
+    int collisions = 0;
+    for (int hash : hashes) {
+      int i = hash & (slots - 1);
+      if (used[i]) {
+        collisions++;
+      }
+      used[i] = true;
+    }
+    return collisions;
+  }
+
+  // the low 32 bits of every value
+  static int[] toInts(long[] values) {
+    int[] ints = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      ints[i] = (int) values[i];
+    }
+    return ints;
+  }
+
+  // millions of items per second, given the nanoseconds they took
+  static String perSecond(long items, long nanos) {
+    return String.format("%.1f", items * 1000.0 / Math.max(1, nanos));
+  }
+}
@@ -0,0 +1,66 @@
+import java.util.SplittableRandom;
+
+// Hashes the positions of a BoardState's vehicles by Zobrist hashing: every (vehicle, position)
+// pair gets a random 64 bit number, and a state's hash is all of its vehicles' numbers xor-ed
+// together. Sliding one vehicle changes its hash by xor-ing out the number for the old position
+// and xor-ing in the one for the new position, so a search can keep the hash of every state it
+// reaches up to date in O(1) per move instead of hashing each state from scratch. Every bit of
+// the hash is as random as the table, so any slice of it makes a well spread bucket index.
+class ZobristHasher {
+  // the seed used unless one is given, so hashes are the same from run to run
+  static final long SEED = 2510;
+
+  // the number for each vehicle at each position along its lane
+  long[][] table;
+  int bits;
+
+  ZobristHasher(BoardState board) {
+    this(board, SEED);
+  }
+
+  ZobristHasher(BoardState board, long seed) {
+    SplittableRandom rng = new SplittableRandom(seed);
+    this.table = new long[board.vehicleCount()][];
+    for (int v = 0; v < board.vehicleCount(); v++) {
+      this.table[v] = new long[board.horizontal[v] ? board.cols : board.rows];
+      for (int p = 0; p < this.table[v].length; p++) {
+        this.table[v][p] = rng.nextLong();
+      }
+    }
+    this.bits = board.bits;
+  }
+
+  /*
+  F:
+  table -- long[][]
+  bits -- int
+  M:
+  hash -- long
+  hashPacked -- long
+  slide -- long
+   */
+
+  // the hash of board in its current position
+  long hash(BoardState board) {
+    long hash = 0;
+    for (int v = 0; v < this.table.length; v++) {
+      hash ^= this.table[v][board.pos[v]];
+    }
+    return hash;
+  }
+
+  // the hash of a state packed by BoardState.pack
+  long hashPacked(long state) {
+    long hash = 0;
+    long mask = (1L << this.bits) - 1;
+    for (int v = 0; v < this.table.length; v++) {
+      hash ^= this.table[v][(int) ((state >>> (v * this.bits)) & mask)];
+    }
+    return hash;
+  }
+
+  // the hash of the state with the given hash after vehicle v slides from position from to to
+  long slide(long hash, int v, int from, int to) {
+    return hash ^ this.table[v][from] ^ this.table[v][to];
+  }
+}